@@ -0,0 +1,63 @@
+#!/usr/bin/env bash
+#
+# Startup-time benchmark of the Docker image: the time from 'docker run' until /actuator/health reports UP,
+# plus the "Started ... in" time logged by Spring Boot, for each startup mode of the image.
+# The config server, MySQL and Eureka have to be reachable on the Docker network (e.g. 'docker compose up').
+#
+# Usage: scripts/startup-benchmark.sh [image] [runs]
+#   NETWORK - Docker network of the dependencies (default: the docker-compose one)
+#   PORT    - host port to publish the management port of the service on (default: 18084)
+#
+# '-Xshare:off' drops the JDK's default CDS archive as well, so the modes without CDS are a little pessimistic.
+
+set -euo pipefail
+
+IMAGE=${1:-user-service-blog-platform-image}
+RUNS=${2:-5}
+NETWORK=${NETWORK:-blog-platform-spring-cloud_default}
+PORT=${PORT:-18084}
+TIMEOUT_SECONDS=120
+
+MODE_NAMES=("aot+cds" "aot" "cds" "plain")
+MODE_OPTS=("" "-Xshare:off" "-Dspring.aot.enabled=false" "-Xshare:off -Dspring.aot.enabled=false")
+
+now_millis() {
+    date +%s%3N
+}
+
+run_once() {
+    local java_opts=$1
+    local container started_at ready_at
+
+    started_at=$(now_millis)
+    container=$(docker run -d --network "$NETWORK" -p "$PORT:8084" -e JAVA_OPTS="$java_opts" "$IMAGE")
+
+    until curl -sf "http://localhost:$PORT/actuator/health" | grep -q '"UP"'; do
+        if (( $(now_millis) - started_at > TIMEOUT_SECONDS * 1000 )); then
+            echo "timeout" >&2
+            docker logs "$container" | tail -n 20 >&2
+            docker rm -f "$container" > /dev/null
+            return 1
+        fi
+        sleep 0.1
+    done
+    ready_at=$(now_millis)
+
+    local started_in
+    started_in=$(docker logs "$container" 2>&1 | grep -o 'Started UserServiceApplication in [0-9.]* seconds' | grep -o '[0-9.]*' || echo "?")
+    docker rm -f "$container" > /dev/null
+
+    echo "$(( ready_at - started_at )) $started_in"
+}
+
+printf "%-10s %-6s %-12s %s\n" "mode" "run" "ready (ms)" "started in (s)"
+
+for i in "${!MODE_NAMES[@]}"; do
+    total=0
+    for run in $(seq 1 "$RUNS"); do
+        read -r ready_millis started_in < <(run_once "${MODE_OPTS[$i]}")
+        total=$(( total + ready_millis ))
+        printf "%-10s %-6s %-12s %s\n" "${MODE_NAMES[$i]}" "$run" "$ready_millis" "$started_in"
+    done
+    printf "%-10s %-6s %-12s\n" "${MODE_NAMES[$i]}" "mean" "$(( total / RUNS ))"
+done
@@ -0,0 +1,78 @@
+package org.example.userservice.benchmark;
+
+import org.example.userservice.model.security.Role;
+import org.example.userservice.model.security.UserDetailsImpl;
+import org.example.userservice.service.security.CachingUserDetailsService;
+import org.example.userservice.service.security.UserDetailsServiceImpl;
+import org.example.userservice.service.security.jwt.JwtSigningKeys;
+import org.example.userservice.service.security.jwt.JwtSigningProperties;
+import org.example.userservice.service.security.jwt.JwtTokenProvider;
+import org.example.userservice.service.security.jwt.TokenRevocationService;
+import org.example.userservice.service.security.jwt.TokenVersionRegistry;
+import org.example.userservice.service.security.jwt.VerifiedTokenCache;
+import org.mockito.Mockito;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/**
+ * Builds the security components outside of the Spring context.
+ * The user lookup and the token versions are served from memory, so the numbers exclude the database round-trip.
+ */
+final class BenchmarkFixtures {
+
+    static final String USERNAME = "benchmark";
+    static final String REQUEST_HEADER = "authorization";
+
+    private BenchmarkFixtures() {
+    }
+
+    static UserDetailsService inMemoryUserDetailsService() {
+        return username -> new UserDetailsImpl(1, username, "", Role.ADMIN, true);
+    }
+
+    // Every user is at token version 0, the version is read from the user details cache after the first lookup
+    static TokenVersionRegistry tokenVersionRegistry() {
+
+        var userDetailsService = Mockito.mock(UserDetailsServiceImpl.class);
+        Mockito.when(userDetailsService.loadUserByUsername(Mockito.anyString()))
+                .thenAnswer(invocation -> new UserDetailsImpl(1, invocation.getArgument(0), "", Role.ADMIN, true));
+
+        return new TokenVersionRegistry(new CachingUserDetailsService(userDetailsService, 10_000, 3_600, 30));
+    }
+
+    static JwtTokenProvider jwtTokenProvider(boolean claimsAuthentication, long verifiedCacheSize) {
+        return jwtTokenProvider(claimsAuthentication, verifiedCacheSize, JwtSigningKeys.Algorithm.HS256);
+    }
+
+    // Asymmetric algorithms use an ephemeral key pair
+    static JwtTokenProvider jwtTokenProvider(boolean claimsAuthentication, long verifiedCacheSize,
+                                             JwtSigningKeys.Algorithm algorithm) {
+
+        var signingProperties = new JwtSigningProperties();
+        signingProperties.setAlgorithm(algorithm);
+
+        var jwtSigningKeys = new JwtSigningKeys(signingProperties);
+        ReflectionTestUtils.setField(jwtSigningKeys, "secretKey", "benchmarkSecretKey-benchmarkSecretKey-benchmarkSecretKey");
+        ReflectionTestUtils.invokeMethod(jwtSigningKeys, "init");
+
+        var tokenVersionRegistry = tokenVersionRegistry();
+
+        var jwtTokenProvider = new JwtTokenProvider(
+                inMemoryUserDetailsService(),
+                tokenVersionRegistry,
+                new VerifiedTokenCache(verifiedCacheSize),
+                jwtSigningKeys,
+                tokenRevocationService(tokenVersionRegistry));
+
+        ReflectionTestUtils.setField(jwtTokenProvider, "requestHeader", REQUEST_HEADER);
+        ReflectionTestUtils.setField(jwtTokenProvider, "validityInSeconds", 3_600L);
+        ReflectionTestUtils.setField(jwtTokenProvider, "claimsAuthentication", claimsAuthentication);
+        ReflectionTestUtils.invokeMethod(jwtTokenProvider, "init");
+
+        return jwtTokenProvider;
+    }
+
+    static TokenRevocationService tokenRevocationService(TokenVersionRegistry tokenVersionRegistry) {
+        return new TokenRevocationService(tokenVersionRegistry, 100_000, 0.001, 3_600);
+    }
+}
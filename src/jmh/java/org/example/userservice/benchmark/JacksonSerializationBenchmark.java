@@ -0,0 +1,79 @@
+package org.example.userservice.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.example.userservice.api.UserRequestDTO;
+import org.example.userservice.api.UserResponseDTO;
+import org.example.userservice.model.User;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class JacksonSerializationBenchmark {
+
+    private ObjectMapper objectMapper;
+
+    private User user;
+    private UserResponseDTO userResponseDTO;
+    private UserRequestDTO userRequestDTO;
+    private String userRequestJson;
+
+    @Setup
+    public void setUp() throws JsonProcessingException {
+
+        objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+
+        user = new User(1L, "benchmark", "$2a$08$abcdefghijklmnopqrstuuJ6q3nJjOqL6f8iV7uQ7nqH2mC8zYzWq",
+                LocalDate.of(1990, 1, 1), "+11111111");
+        user.setVersion(0L);
+        userResponseDTO = UserResponseDTO.of(user);
+        userRequestDTO = new UserRequestDTO(user);
+        userRequestJson = objectMapper.writeValueAsString(userRequestDTO);
+    }
+
+    /**
+     * Serialized bytes, reported in the same unit as the operations, so their ratio is the payload size
+     * of the entity (what the GET endpoints used to return) against the read model.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Payload {
+
+        public long bytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            bytes = 0;
+        }
+    }
+
+    @Benchmark
+    public byte[] serializeUser(Payload payload) throws JsonProcessingException {
+        return count(payload, objectMapper.writeValueAsBytes(user));
+    }
+
+    @Benchmark
+    public byte[] serializeUserResponseDTO(Payload payload) throws JsonProcessingException {
+        return count(payload, objectMapper.writeValueAsBytes(userResponseDTO));
+    }
+
+    @Benchmark
+    public byte[] serializeUserRequestDTO(Payload payload) throws JsonProcessingException {
+        return count(payload, objectMapper.writeValueAsBytes(userRequestDTO));
+    }
+
+    @Benchmark
+    public UserRequestDTO deserializeUserRequestDTO() throws JsonProcessingException {
+        return objectMapper.readValue(userRequestJson, UserRequestDTO.class);
+    }
+
+    private static byte[] count(Payload payload, byte[] serialized) {
+        payload.bytes += serialized.length;
+        return serialized;
+    }
+}
@@ -0,0 +1,49 @@
+package org.example.userservice.benchmark;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.userservice.model.security.Role;
+import org.example.userservice.service.security.jwt.JwtTokenFilter;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class JwtTokenFilterBenchmark {
+
+    @Param({"0", "10000"})
+    private long verifiedCacheSize;
+
+    @Param({"false", "true"})
+    private boolean claimsAuthentication;
+
+    private JwtTokenFilter jwtTokenFilter;
+    private MockHttpServletRequest request;
+
+    @Setup
+    public void setUp() {
+
+        var jwtTokenProvider = BenchmarkFixtures.jwtTokenProvider(claimsAuthentication, verifiedCacheSize);
+        jwtTokenFilter = new JwtTokenFilter(jwtTokenProvider, new SimpleMeterRegistry());
+
+        request = new MockHttpServletRequest("GET", "/api/v1/users");
+        request.addHeader(BenchmarkFixtures.REQUEST_HEADER,
+                jwtTokenProvider.createToken(BenchmarkFixtures.USERNAME, Role.ADMIN.getAuthorities()));
+    }
+
+    @Benchmark
+    public Object doFilter() throws Exception {
+        var response = new MockHttpServletResponse();
+        try {
+            jwtTokenFilter.doFilter(request, response, new MockFilterChain());
+            return SecurityContextHolder.getContext().getAuthentication();
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package org.example.userservice.benchmark;
+
+import org.example.userservice.model.security.Role;
+import org.example.userservice.service.security.jwt.JwtSigningKeys;
+import org.example.userservice.service.security.jwt.JwtTokenProvider;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class JwtTokenProviderBenchmark {
+
+    // 0 disables the verified-token cache, so every call parses and verifies the signature
+    @Param({"0", "10000"})
+    private long verifiedCacheSize;
+
+    @Param({"false", "true"})
+    private boolean claimsAuthentication;
+
+    @Param({"HS256", "RS256", "EdDSA"})
+    private JwtSigningKeys.Algorithm algorithm;
+
+    private JwtTokenProvider jwtTokenProvider;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        jwtTokenProvider = BenchmarkFixtures.jwtTokenProvider(claimsAuthentication, verifiedCacheSize, algorithm);
+        token = jwtTokenProvider.createToken(BenchmarkFixtures.USERNAME, Role.ADMIN.getAuthorities());
+    }
+
+    @Benchmark
+    public String createToken() {
+        return jwtTokenProvider.createToken(BenchmarkFixtures.USERNAME, Role.ADMIN.getAuthorities());
+    }
+
+    @Benchmark
+    public boolean validateToken() {
+        return jwtTokenProvider.validateToken(token);
+    }
+
+    @Benchmark
+    public Object getAuthentication() {
+        return jwtTokenProvider.getAuthentication(token);
+    }
+}
@@ -0,0 +1,58 @@
+package org.example.userservice.benchmark;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import org.example.userservice.service.security.jwt.JwtTokenProvider;
+import org.example.userservice.service.security.jwt.TokenRevocationService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Date;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class TokenRevocationBenchmark {
+
+    // Revoked ids besides the one being checked, they load the Bloom filter and the exact set
+    @Param({"0", "10000"})
+    private int revokedCount;
+
+    private TokenRevocationService tokenRevocationService;
+    private Claims activeClaims;
+    private Claims revokedClaims;
+
+    @Setup
+    public void setUp() {
+
+        tokenRevocationService = BenchmarkFixtures.tokenRevocationService(BenchmarkFixtures.tokenVersionRegistry());
+
+        for (int i = 0; i < revokedCount; i++) {
+            tokenRevocationService.revoke(claims());
+        }
+
+        activeClaims = claims();
+        revokedClaims = claims();
+        tokenRevocationService.revoke(revokedClaims);
+    }
+
+    @Benchmark
+    public boolean isRevoked_Active() {
+        return tokenRevocationService.isRevoked(activeClaims);
+    }
+
+    @Benchmark
+    public boolean isRevoked_Revoked() {
+        return tokenRevocationService.isRevoked(revokedClaims);
+    }
+
+    private static Claims claims() {
+        return Jwts.claims()
+                .id(UUID.randomUUID().toString())
+                .subject(BenchmarkFixtures.USERNAME)
+                .add(JwtTokenProvider.TOKEN_VERSION_CLAIM, 0)
+                .expiration(new Date(System.currentTimeMillis() + 3_600_000))
+                .build();
+    }
+}
@@ -0,0 +1,22 @@
+package org.example.userservice.api;
+
+import lombok.*;
+
+@NoArgsConstructor @AllArgsConstructor
+@Getter @Setter
+@EqualsAndHashCode
+@ToString
+public class UserBatchResultDTO {
+
+    private int index;
+    private String username;
+    private Status status;
+    private Long id;
+    private String message;
+
+    public enum Status {
+        CREATED,
+        CONFLICT,
+        INVALID
+    }
+}
@@ -0,0 +1,14 @@
+package org.example.userservice.api;
+
+import lombok.*;
+
+import java.util.List;
+
+@NoArgsConstructor @AllArgsConstructor
+@Getter @Setter
+@EqualsAndHashCode
+@ToString
+public class UserPageDTO {
+    private List<UserResponseDTO> users;
+    private String nextPageToken;
+}
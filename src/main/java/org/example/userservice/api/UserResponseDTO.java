@@ -0,0 +1,20 @@
+package org.example.userservice.api;
+
+import org.example.userservice.model.User;
+
+import java.time.LocalDate;
+
+/**
+ * Read model of a user, built from the public columns only, so the password hash is never sent.
+ */
+public record UserResponseDTO(Long id, String username, LocalDate birthDate, String phoneNumber, Long version) {
+
+    public static UserResponseDTO of(User user) {
+        return new UserResponseDTO(
+                user.getId(),
+                user.getUsername(),
+                user.getBirthDate(),
+                user.getPhoneNumber(),
+                user.getVersion());
+    }
+}
@@ -0,0 +1,12 @@
+package org.example.userservice.api;
+
+import lombok.*;
+
+@NoArgsConstructor @AllArgsConstructor
+@Getter @Setter
+@EqualsAndHashCode
+@ToString
+public class UsernameAvailabilityDTO {
+    private String username;
+    private boolean available;
+}
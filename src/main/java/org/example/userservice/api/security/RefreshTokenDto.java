@@ -0,0 +1,11 @@
+package org.example.userservice.api.security;
+
+import lombok.*;
+
+@NoArgsConstructor @AllArgsConstructor
+@Getter @Setter
+@EqualsAndHashCode
+@ToString(exclude = "refreshToken")
+public class RefreshTokenDto {
+    private String refreshToken;
+}
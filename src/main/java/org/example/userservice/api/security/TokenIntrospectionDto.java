@@ -0,0 +1,27 @@
+package org.example.userservice.api.security;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.*;
+
+import java.util.List;
+
+/**
+ * Result of the introspection of one token, only 'active' is set for the tokens that are not active.
+ */
+@NoArgsConstructor @AllArgsConstructor
+@Getter @Setter
+@EqualsAndHashCode
+@ToString
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class TokenIntrospectionDto {
+
+    private boolean active;
+    private String subject;
+    private List<String> authorities;
+    // Remaining time to live, in seconds
+    private Long expiresIn;
+
+    public static TokenIntrospectionDto inactive() {
+        return new TokenIntrospectionDto(false, null, null, null);
+    }
+}
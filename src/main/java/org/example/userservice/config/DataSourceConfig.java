@@ -0,0 +1,107 @@
+package org.example.userservice.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import javax.sql.DataSource;
+import java.util.LinkedHashMap;
+
+/**
+ * Read-only transactions are routed to the replicas listed in the configuration:
+ * <pre>
+ * users:
+ *   datasource:
+ *     replicas:
+ *       - url: jdbc:mysql://mysql-db-replica:3306/user-service-blog-platform
+ *         username: ...
+ *         password: ...
+ * </pre>
+ * The primary keeps being configured with {@code spring.datasource.*}.
+ * The beans are registered even without replicas and everything goes to the primary then, so that the replicas
+ * are read at runtime rather than fixed by AOT processing (like {@link FlywayConfig}).
+ */
+@Configuration
+@EnableConfigurationProperties(ReplicaDataSourceProperties.class)
+public class DataSourceConfig {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties dataSourceProperties) {
+        return dataSourceProperties.initializeDataSourceBuilder()
+                .type(HikariDataSource.class)
+                .build();
+    }
+
+    @Bean
+    public ReplicaRoutingDataSource replicaRoutingDataSource(@Qualifier("primaryDataSource") DataSource primaryDataSource,
+                                                             DataSourceProperties dataSourceProperties,
+                                                             ReplicaDataSourceProperties replicaProperties,
+                                                             ObjectProvider<MeterRegistry> meterRegistry) {
+
+        var replicas = new LinkedHashMap<String, DataSource>();
+        for (var replica : replicaProperties.getReplicas()) {
+            var name = "replica-" + replicas.size();
+            var dataSource = DataSourceBuilder.create()
+                    .type(HikariDataSource.class)
+                    .driverClassName(dataSourceProperties.determineDriverClassName())
+                    .url(replica.getUrl())
+                    .username(replica.getUsername())
+                    .password(replica.getPassword())
+                    .build();
+            dataSource.setPoolName(name);
+            dataSource.setReadOnly(true);
+            dataSource.setConnectionTimeout(replicaProperties.getConnectionTimeout().toMillis());
+            // Not a bean, so the pool metrics are not bound by Spring Boot, they are tagged with the pool name
+            meterRegistry.ifAvailable(registry -> dataSource.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(registry)));
+            replicas.put(name, dataSource);
+        }
+
+        return new ReplicaRoutingDataSource(
+                primaryDataSource,
+                replicas,
+                replicaProperties.getReadYourWritesWindow(),
+                replicaProperties.getHealthCheckTimeout(),
+                DataSourceConfig::currentPrincipal);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(ReplicaRoutingDataSource replicaRoutingDataSource) {
+        return new LazyConnectionDataSourceProxy(replicaRoutingDataSource);
+    }
+
+    @Bean
+    public MeterBinder replicaMetrics(ReplicaRoutingDataSource replicaRoutingDataSource) {
+        return meterRegistry -> {
+            Gauge.builder("users.datasource.replicas", replicaRoutingDataSource, ReplicaRoutingDataSource::getReplicaCount)
+                    .tag("state", "configured")
+                    .register(meterRegistry);
+            Gauge.builder("users.datasource.replicas", replicaRoutingDataSource, ReplicaRoutingDataSource::getHealthyReplicaCount)
+                    .tag("state", "healthy")
+                    .register(meterRegistry);
+        };
+    }
+
+    private static String currentPrincipal() {
+        var authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || authentication instanceof AnonymousAuthenticationToken) {
+            return null;
+        }
+        return authentication.getName();
+    }
+}
@@ -0,0 +1,20 @@
+package org.example.userservice.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.flyway.FlywayMigrationStrategy;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class FlywayConfig {
+
+    // Read at runtime, unlike 'spring.flyway.enabled' which is fixed by AOT processing, so the CDS training run can skip it
+    @Bean
+    public FlywayMigrationStrategy flywayMigrationStrategy(@Value("${users.migrations.on-startup:true}") boolean migrateOnStartup) {
+        return flyway -> {
+            if (migrateOnStartup) {
+                flyway.migrate();
+            }
+        };
+    }
+}
@@ -0,0 +1,102 @@
+package org.example.userservice.config;
+
+import io.micrometer.core.aop.TimedAspect;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.example.userservice.service.UsernameAvailabilityService;
+import org.example.userservice.service.security.CachingUserDetailsService;
+import org.example.userservice.service.security.LoginThrottle;
+import org.example.userservice.service.security.PasswordHashingExecutor;
+import org.example.userservice.service.security.jwt.TokenRevocationService;
+import org.example.userservice.service.security.jwt.VerifiedTokenCache;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.function.ToDoubleFunction;
+
+@Configuration
+public class MetricsConfig {
+
+    @Bean
+    public TimedAspect timedAspect(MeterRegistry meterRegistry) {
+        return new TimedAspect(meterRegistry);
+    }
+
+    @Bean
+    public MeterBinder securityCacheMetrics(CachingUserDetailsService cachingUserDetailsService,
+                                            VerifiedTokenCache verifiedTokenCache) {
+        return meterRegistry -> {
+            CaffeineCacheMetrics.monitor(meterRegistry, cachingUserDetailsService.getCache(), "security.user-details");
+            CaffeineCacheMetrics.monitor(meterRegistry, verifiedTokenCache.getCache(), "security.verified-tokens");
+        };
+    }
+
+    @Bean
+    public MeterBinder tokenRevocationMetrics(TokenRevocationService tokenRevocationService) {
+        return meterRegistry -> Gauge.builder("security.jwt.revoked", tokenRevocationService, TokenRevocationService::getRevokedCount)
+                .description("Revoked tokens that have not expired yet")
+                .register(meterRegistry);
+    }
+
+    @Bean
+    public MeterBinder usernameAvailabilityMetrics(UsernameAvailabilityService usernameAvailabilityService) {
+        return meterRegistry -> {
+            FunctionCounter.builder("users.username-availability.checks", usernameAvailabilityService,
+                            UsernameAvailabilityService::getAnsweredByFilterCount)
+                    .description("Username availability checks")
+                    .tag("answered_by", "filter")
+                    .register(meterRegistry);
+            FunctionCounter.builder("users.username-availability.checks", usernameAvailabilityService,
+                            UsernameAvailabilityService::getAnsweredByDatabaseCount)
+                    .description("Username availability checks")
+                    .tag("answered_by", "database")
+                    .register(meterRegistry);
+
+            Gauge.builder("users.username-availability.filter.bits", usernameAvailabilityService,
+                            UsernameAvailabilityService::getBitCount)
+                    .register(meterRegistry);
+        };
+    }
+
+    @Bean
+    public MeterBinder loginThrottleMetrics(LoginThrottle loginThrottle) {
+        return meterRegistry -> {
+            loginAttemptsCounter(meterRegistry, loginThrottle, "allowed", LoginThrottle::getAllowedCount);
+            loginAttemptsCounter(meterRegistry, loginThrottle, "rejected_username", LoginThrottle::getRejectedByUsernameCount);
+            loginAttemptsCounter(meterRegistry, loginThrottle, "rejected_ip", LoginThrottle::getRejectedByIpCount);
+            loginAttemptsCounter(meterRegistry, loginThrottle, "rejected_lockout", LoginThrottle::getRejectedByLockoutCount);
+
+            FunctionCounter.builder("security.login.throttle.lockouts", loginThrottle, LoginThrottle::getLockoutCount)
+                    .description("Lockouts started after repeated login failures")
+                    .register(meterRegistry);
+
+            Gauge.builder("security.login.throttle.keys", loginThrottle, LoginThrottle::getTrackedUsernames)
+                    .tag("type", "username")
+                    .register(meterRegistry);
+            Gauge.builder("security.login.throttle.keys", loginThrottle, LoginThrottle::getTrackedIps)
+                    .tag("type", "ip")
+                    .register(meterRegistry);
+        };
+    }
+
+    @Bean
+    public MeterBinder passwordHashingExecutorMetrics(PasswordHashingExecutor passwordHashingExecutor) {
+        return meterRegistry -> {
+            Gauge.builder("security.login.hashing.queued", passwordHashingExecutor, PasswordHashingExecutor::getQueueSize)
+                    .register(meterRegistry);
+            Gauge.builder("security.login.hashing.active", passwordHashingExecutor, PasswordHashingExecutor::getActiveCount)
+                    .register(meterRegistry);
+        };
+    }
+
+    private static void loginAttemptsCounter(MeterRegistry meterRegistry, LoginThrottle loginThrottle,
+                                             String decision, ToDoubleFunction<LoginThrottle> count) {
+        FunctionCounter.builder("security.login.throttle.decisions", loginThrottle, count)
+                .description("Login attempts checked by the login throttle")
+                .tag("decision", decision)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,31 @@
+package org.example.userservice.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+@ConfigurationProperties("users.datasource")
+@Getter @Setter
+public class ReplicaDataSourceProperties {
+
+    private List<Replica> replicas = new ArrayList<>();
+
+    // How long a principal keeps reading from the primary after its own write has been committed
+    private Duration readYourWritesWindow = Duration.ofSeconds(5);
+
+    private Duration healthCheckTimeout = Duration.ofSeconds(1);
+
+    // A read waits this long for a replica connection before it falls back to the primary (250 ms at least)
+    private Duration connectionTimeout = Duration.ofMillis(500);
+
+    @Getter @Setter
+    public static class Replica {
+        private String url;
+        private String username;
+        private String password;
+    }
+}
@@ -0,0 +1,194 @@
+package org.example.userservice.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Sends the connections of read-only transactions to the replicas (round-robin) and everything else to the primary.
+ * <p>
+ * A principal that has just committed a write keeps reading from the primary for the read-your-writes window,
+ * and a replica that cannot be connected to or fails a health check is skipped until it passes a health check again.
+ * A replica whose pool is merely exhausted stays in rotation, only the read that timed out goes to the primary.
+ * Must be wrapped into a {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy}, so that
+ * the connection is requested only after the transaction has been marked read-only.
+ */
+@Log4j2
+public class ReplicaRoutingDataSource extends AbstractDataSource implements DisposableBean {
+
+    private final DataSource primary;
+    private final List<Replica> replicas;
+    private final Supplier<String> principalSupplier;
+    private final Duration healthCheckTimeout;
+    private final Cache<String, Boolean> recentWriters;
+    private final AtomicInteger nextReplica = new AtomicInteger();
+
+    public ReplicaRoutingDataSource(DataSource primary,
+                                    Map<String, DataSource> replicas,
+                                    Duration readYourWritesWindow,
+                                    Duration healthCheckTimeout,
+                                    Supplier<String> principalSupplier) {
+        this.primary = primary;
+        this.replicas = replicas.entrySet().stream()
+                .map(replica -> new Replica(replica.getKey(), replica.getValue()))
+                .toList();
+        this.principalSupplier = principalSupplier;
+        this.healthCheckTimeout = healthCheckTimeout;
+        this.recentWriters = Caffeine.newBuilder()
+                .expireAfterWrite(readYourWritesWindow)
+                .build();
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return getConnection(DataSource::getConnection);
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return getConnection(dataSource -> dataSource.getConnection(username, password));
+    }
+
+    private Connection getConnection(ConnectionSupplier connectionSupplier) throws SQLException {
+
+        if (replicas.isEmpty()) {
+            return connectionSupplier.get(primary);
+        }
+
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            registerWrite();
+            return connectionSupplier.get(primary);
+        }
+
+        var replica = selectReplica();
+        if (replica == null) {
+            return connectionSupplier.get(primary);
+        }
+
+        try {
+            return connectionSupplier.get(replica.dataSource);
+        } catch (SQLException e) {
+            if (isConnectionFailure(e)) {
+                replica.healthy = false;
+                log.warn("Replica '{}' is marked as unhealthy, reading from the primary - {}", replica.name, e.getMessage());
+            } else {
+                log.debug("No connection to replica '{}' available, reading from the primary - {}", replica.name, e.getMessage());
+            }
+            return connectionSupplier.get(primary);
+        }
+    }
+
+    // SQLState class 08 (connection exception), Hikari passes it on from the last failed connection attempt
+    private static boolean isConnectionFailure(SQLException e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLException sqlException
+                    && sqlException.getSQLState() != null && sqlException.getSQLState().startsWith("08")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private Replica selectReplica() {
+
+        var principal = principalSupplier.get();
+        if (principal != null && recentWriters.getIfPresent(principal) != null) {
+            return null;
+        }
+
+        var size = replicas.size();
+        var start = Math.floorMod(nextReplica.getAndIncrement(), Math.max(size, 1));
+        for (int i = 0; i < size; i++) {
+            var replica = replicas.get((start + i) % size);
+            if (replica.healthy) {
+                return replica;
+            }
+        }
+        return null;
+    }
+
+    // The window starts once the write is committed, i.e. once it can be replicated
+    private void registerWrite() {
+
+        if (!TransactionSynchronizationManager.isActualTransactionActive()
+                || !TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+
+        var principal = principalSupplier.get();
+        if (principal == null) {
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                recentWriters.put(principal, Boolean.TRUE);
+            }
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${users.datasource.health-check-interval:5000}")
+    public void checkHealth() {
+        for (var replica : replicas) {
+            var healthy = false;
+            try (var connection = replica.dataSource.getConnection()) {
+                healthy = connection.isValid((int) Math.max(healthCheckTimeout.toSeconds(), 1));
+            } catch (SQLException e) {
+                log.debug("Health check of replica '{}' failed - {}", replica.name, e.getMessage());
+            }
+            if (healthy != replica.healthy) {
+                log.warn("Replica '{}' is {}", replica.name, healthy ? "healthy again" : "unhealthy");
+            }
+            replica.healthy = healthy;
+        }
+    }
+
+    public int getReplicaCount() {
+        return replicas.size();
+    }
+
+    public int getHealthyReplicaCount() {
+        return (int) replicas.stream().filter(replica -> replica.healthy).count();
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        for (var replica : replicas) {
+            if (replica.dataSource instanceof AutoCloseable closeable) {
+                closeable.close();
+            }
+        }
+    }
+
+    private static final class Replica {
+
+        private final String name;
+        private final DataSource dataSource;
+        private volatile boolean healthy = true;
+
+        private Replica(String name, DataSource dataSource) {
+            this.name = name;
+            this.dataSource = dataSource;
+        }
+    }
+
+    @FunctionalInterface
+    private interface ConnectionSupplier {
+        Connection get(DataSource dataSource) throws SQLException;
+    }
+}
@@ -0,0 +1,65 @@
+package org.example.userservice.config;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import org.example.userservice.model.User;
+import org.example.userservice.model.security.UserDetailsImpl;
+import org.example.userservice.repository.NaturalIdJpaRepository;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import java.net.URI;
+import java.time.Duration;
+import java.util.OptionalLong;
+import java.util.UUID;
+
+/**
+ * Hibernate second-level cache on Caffeine (JCache), every region is bounded and expires after a write.
+ * Writes go through the persistence context on a row read with a lock, never through bulk JPQL statements,
+ * so each of them updates or removes only the entry of the changed entity and its natural id.
+ */
+@Configuration
+@EnableJpaRepositories(basePackages = "org.example.userservice.repository", repositoryBaseClass = NaturalIdJpaRepository.class)
+public class SecondLevelCacheConfig {
+
+    // Each application context gets its own cache manager, the JCache provider would otherwise share it JVM-wide
+    @Bean(destroyMethod = "close")
+    public CacheManager hibernateCacheManager(@Value("${users.entity-cache.maximum-size:10000}") long usersMaximumSize,
+                                              @Value("${users.entity-cache.ttl:300}") long usersTtlInSeconds,
+                                              @Value("${security.entity-cache.maximum-size:10000}") long securityMaximumSize,
+                                              @Value("${security.entity-cache.ttl:300}") long securityTtlInSeconds) {
+
+        var cachingProvider = Caching.getCachingProvider(CaffeineCachingProvider.class.getName());
+        var cacheManager = cachingProvider.getCacheManager(
+                URI.create("hibernate-" + UUID.randomUUID()), getClass().getClassLoader());
+
+        var usersTtl = Duration.ofSeconds(usersTtlInSeconds);
+        createRegion(cacheManager, User.CACHE_REGION, usersMaximumSize, usersTtl);
+        createRegion(cacheManager, User.NATURAL_ID_CACHE_REGION, usersMaximumSize, usersTtl);
+
+        var securityTtl = Duration.ofSeconds(securityTtlInSeconds);
+        createRegion(cacheManager, UserDetailsImpl.CACHE_REGION, securityMaximumSize, securityTtl);
+        createRegion(cacheManager, UserDetailsImpl.NATURAL_ID_CACHE_REGION, securityMaximumSize, securityTtl);
+
+        return cacheManager;
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer secondLevelCacheCustomizer(CacheManager hibernateCacheManager) {
+        return properties -> properties.put(ConfigSettings.CACHE_MANAGER, hibernateCacheManager);
+    }
+
+    private static void createRegion(CacheManager cacheManager, String region, long maximumSize, Duration ttl) {
+        var configuration = new CaffeineConfiguration<Object, Object>();
+        configuration.setMaximumSize(OptionalLong.of(maximumSize));
+        configuration.setExpireAfterWrite(OptionalLong.of(ttl.toNanos()));
+        configuration.setStatisticsEnabled(true);
+        cacheManager.createCache(region, configuration);
+    }
+}
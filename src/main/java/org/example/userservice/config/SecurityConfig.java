@@ -1,24 +1,35 @@
 package org.example.userservice.config;
 
+import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
 import org.example.userservice.model.security.Permission;
 import org.example.userservice.service.security.jwt.JwtConfigurer;
+import org.example.userservice.service.security.jwt.JwtSigningProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
 import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.AuthenticationProvider;
+import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
 import org.springframework.security.config.annotation.authentication.configuration.AuthenticationConfiguration;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.util.matcher.AndRequestMatcher;
 import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
 
 @Configuration
 @EnableWebSecurity
+@EnableConfigurationProperties(JwtSigningProperties.class)
 @RequiredArgsConstructor
 public class SecurityConfig {
 
     private final JwtConfigurer jwtConfigurer;
+    private final Environment environment;
 
     @Bean
     public SecurityFilterChain filterChain(HttpSecurity http) throws Exception {
@@ -26,9 +37,17 @@ public class SecurityConfig {
         http
                 .csrf(AbstractHttpConfigurer::disable)
                 .authorizeHttpRequests(authz -> authz
+                        .requestMatchers(new AntPathRequestMatcher("/auth/introspect", "POST")).hasAuthority(Permission.INTROSPECT.getAuthority())
                         .requestMatchers(new AntPathRequestMatcher("/auth/**")).permitAll()
+                        .requestMatchers(new AntPathRequestMatcher("/.well-known/jwks.json", "GET")).permitAll()
+                        .requestMatchers(new AntPathRequestMatcher("/actuator/health/**", "GET")).permitAll()
+                        .requestMatchers(new AntPathRequestMatcher("/actuator/info", "GET")).permitAll()
+                        // Metrics are scraped anonymously only on the management port, which is not routed publicly
+                        .requestMatchers(new AndRequestMatcher(
+                                new AntPathRequestMatcher("/actuator/prometheus", "GET"), this::isManagementPort)).permitAll()
                         .requestMatchers(new AntPathRequestMatcher("/api/**", "POST")).hasAuthority(Permission.CREATE.getAuthority())
                         .requestMatchers(new AntPathRequestMatcher("/api/**", "PUT")).hasAuthority(Permission.UPDATE.getAuthority())
+                        .requestMatchers(new AntPathRequestMatcher("/api/**", "PATCH")).hasAuthority(Permission.UPDATE.getAuthority())
                         .requestMatchers(new AntPathRequestMatcher("/api/**", "DELETE")).hasAuthority(Permission.DELETE.getAuthority())
                         .requestMatchers(new AntPathRequestMatcher("/api/**", "GET")).hasAuthority(Permission.READ.getAuthority())
                         .anyRequest().authenticated()
@@ -38,6 +57,20 @@ public class SecurityConfig {
         return http.build();
     }
 
+    // The port is only known once the management server has started, e.g. when it is random in tests
+    private boolean isManagementPort(HttpServletRequest request) {
+        var managementPort = environment.getProperty("local.management.port", Integer.class);
+        return managementPort != null && request.getLocalPort() == managementPort;
+    }
+
+    @Bean
+    public AuthenticationProvider authenticationProvider(UserDetailsService userDetailsService, PasswordEncoder passwordEncoder) {
+        var authenticationProvider = new DaoAuthenticationProvider();
+        authenticationProvider.setUserDetailsService(userDetailsService);
+        authenticationProvider.setPasswordEncoder(passwordEncoder);
+        return authenticationProvider;
+    }
+
     @Bean
     public AuthenticationManager authenticationManager(AuthenticationConfiguration authConfiguration) throws Exception {
         return authConfiguration.getAuthenticationManager();
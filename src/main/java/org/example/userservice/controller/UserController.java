@@ -1,14 +1,28 @@
 package org.example.userservice.controller;
 
 import lombok.RequiredArgsConstructor;
+import org.example.userservice.api.UserBatchResultDTO;
+import org.example.userservice.api.UserPageDTO;
 import org.example.userservice.api.UserRequestDTO;
-import org.example.userservice.model.User;
+import org.example.userservice.api.UserResponseDTO;
+import org.example.userservice.api.UsernameAvailabilityDTO;
+import org.example.userservice.model.UserVersion;
+import org.example.userservice.service.UserExportService;
 import org.example.userservice.service.UserService;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.time.LocalDate;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
 
 @RestController
 @RequestMapping("/api/v1/users")
@@ -16,46 +30,214 @@ import java.util.List;
 public class UserController {
     
     private final UserService userService;
+    private final UserExportService userExportService;
 
     @GetMapping
-    public ResponseEntity<List<User>> getAll() {
-        var users = userService.getAll();
-        return ResponseEntity.ok(users);
+    public ResponseEntity<UserPageDTO> getPage(@RequestParam(required = false) String pageToken,
+                                               @RequestParam(required = false) Integer size) {
+        var page = userService.getPage(pageToken, size);
+        return ResponseEntity.ok(page);
+    }
+
+    @GetMapping("/search")
+    public ResponseEntity<UserPageDTO> search(@RequestParam(required = false) String usernamePrefix,
+                                              @RequestParam(required = false) String phoneNumber,
+                                              @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate birthDateFrom,
+                                              @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate birthDateTo,
+                                              @RequestParam(required = false) String pageToken,
+                                              @RequestParam(required = false) Integer size) {
+        var page = userService.search(usernamePrefix, phoneNumber, birthDateFrom, birthDateTo, pageToken, size);
+        return ResponseEntity.ok(page);
+    }
+
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> export(@RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+
+        var gzip = acceptsGzip(acceptEncoding);
+
+        StreamingResponseBody body = outputStream -> {
+            if (gzip) {
+                try (var gzipOutputStream = new GZIPOutputStream(outputStream, true)) {
+                    userExportService.exportAsNdjson(gzipOutputStream);
+                }
+            } else {
+                userExportService.exportAsNdjson(outputStream);
+            }
+        };
+
+        var response = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return response.body(body);
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<User> getById(@PathVariable Long id) {
+    public ResponseEntity<UserResponseDTO> getById(@PathVariable Long id,
+                                        @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+
+        // The version alone is read to answer a matching If-None-Match, the user is neither loaded nor serialized
+        if (ifNoneMatch != null) {
+            var version = userService.getVersionById(id);
+            if (version != null && UserETags.matchesAny(ifNoneMatch, version)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(UserETags.of(version)).build();
+            }
+        }
+
         var user = userService.getById(id);
         if (user == null) {
             return ResponseEntity.notFound().build();
         }
-        return ResponseEntity.ok(user);
+        return ResponseEntity.ok().eTag(UserETags.of(user)).body(user);
     }
 
     @GetMapping("/username/{username}")
-    public ResponseEntity<User> getByUsername(@PathVariable String username) {
+    public ResponseEntity<UserResponseDTO> getByUsername(@PathVariable String username,
+                                              @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+
+        if (ifNoneMatch != null) {
+            var version = userService.getVersionByUsername(username);
+            if (version != null && UserETags.matchesAny(ifNoneMatch, version)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(UserETags.of(version)).build();
+            }
+        }
+
         var user = userService.getByUsername(username);
         if (user == null) {
             return ResponseEntity.notFound().build();
         }
-        return ResponseEntity.ok(user);
+        return ResponseEntity.ok().eTag(UserETags.of(user)).body(user);
+    }
+
+    @GetMapping("/username-available/{username}")
+    public ResponseEntity<UsernameAvailabilityDTO> isUsernameAvailable(@PathVariable String username) {
+        var available = userService.isUsernameAvailable(username);
+        return ResponseEntity.ok(new UsernameAvailabilityDTO(username, available));
+    }
+
+    @GetMapping("/by-ids")
+    public ResponseEntity<Map<Long, UserResponseDTO>> getAllByIds(@RequestParam List<Long> ids) {
+        var users = userService.getAllByIds(ids);
+        return ResponseEntity.ok(users);
+    }
+
+    @GetMapping("/by-usernames")
+    public ResponseEntity<Map<String, UserResponseDTO>> getAllByUsernames(@RequestParam List<String> usernames) {
+        var users = userService.getAllByUsernames(usernames);
+        return ResponseEntity.ok(users);
     }
 
     @PostMapping
-    public ResponseEntity<User> create(@RequestBody UserRequestDTO user) {
+    public ResponseEntity<UserResponseDTO> create(@RequestBody UserRequestDTO user) {
         var userPersisted = userService.create(user);
-        return ResponseEntity.ok(userPersisted);
+        return ResponseEntity.ok(UserResponseDTO.of(userPersisted));
+    }
+
+    @PostMapping("/batch")
+    public ResponseEntity<List<UserBatchResultDTO>> createAll(@RequestBody List<UserRequestDTO> users) {
+        var results = userService.createAll(users);
+        return ResponseEntity.ok(results);
     }
 
     @PutMapping("/{id}")
-    public ResponseEntity<User> update(@PathVariable Long id, @RequestBody UserRequestDTO user) {
-        var userPersisted = userService.update(id, user);
-        return ResponseEntity.ok(userPersisted);
+    public ResponseEntity<UserResponseDTO> update(@PathVariable Long id,
+                                                  @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+                                                  @RequestBody UserRequestDTO user) {
+        var expectedVersion = resolveExpectedVersion(id, ifMatch);
+        var userUpdated = userService.update(id, expectedVersion, user);
+        return ResponseEntity.ok().eTag(UserETags.of(userUpdated)).body(userUpdated);
+    }
+
+    // Answers 204 No Content with the new ETag (if known), the patched user is not read back
+    @PatchMapping("/{id}")
+    public ResponseEntity<Void> patch(@PathVariable Long id,
+                                      @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+                                      @RequestBody UserRequestDTO user) {
+        var expectedVersion = resolveExpectedVersion(id, ifMatch);
+        userService.patch(id, expectedVersion, user);
+        return updated(id, expectedVersion);
     }
 
     @DeleteMapping("/{id}")
     @ResponseStatus(HttpStatus.OK)
-    public void deleteById(@PathVariable Long id) {
-        userService.deleteById(id);
+    public void deleteById(@PathVariable Long id,
+                           @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        var expectedVersion = resolveExpectedVersion(id, ifMatch);
+        userService.deleteById(id, expectedVersion);
+    }
+
+    /**
+     * Whether gzip is acceptable with a non-zero weight, listed by name or through '*' (RFC 9110 12.5.3).
+     */
+    static boolean acceptsGzip(String acceptEncoding) {
+
+        if (acceptEncoding == null) {
+            return false;
+        }
+
+        Double gzipWeight = null;
+        Double wildcardWeight = null;
+        for (var coding : acceptEncoding.split(",")) {
+            var parts = coding.split(";");
+            var name = parts[0].trim().toLowerCase(Locale.ROOT);
+            if (name.equals("gzip") || name.equals("x-gzip")) {
+                gzipWeight = weightOf(parts);
+            } else if (name.equals("*")) {
+                wildcardWeight = weightOf(parts);
+            }
+        }
+
+        var weight = gzipWeight != null ? gzipWeight : wildcardWeight;
+        return weight != null && weight > 0;
+    }
+
+    // A missing weight counts as 1, a malformed one as 0, so that an unclear header gets the identity encoding
+    private static double weightOf(String[] parts) {
+        for (int i = 1; i < parts.length; i++) {
+            var parameter = parts[i].trim();
+            if (parameter.length() > 2 && parameter.substring(0, 2).equalsIgnoreCase("q=")) {
+                try {
+                    return Double.parseDouble(parameter.substring(2).trim());
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 1;
+    }
+
+    // Null means that the change is unconditional, 'If-Match: *' still requires the user to exist (RFC 9110 13.1.1)
+    private Long resolveExpectedVersion(Long id, String ifMatch) {
+
+        if (ifMatch == null) {
+            return null;
+        }
+        if (UserETags.isWildcard(ifMatch)) {
+            return UserService.ANY_VERSION;
+        }
+
+        var versions = UserETags.versionsOf(ifMatch, id);
+        if (versions.size() == 1) {
+            return versions.iterator().next();
+        }
+
+        // Several versions are listed, so the conditional statement is run against the current one if it is among them
+        var current = versions.isEmpty() ? null : userService.getVersionById(id);
+        if (current == null || !versions.contains(current.version())) {
+            throw new ResponseStatusException(HttpStatus.PRECONDITION_FAILED,
+                    "User with id '" + id + "' does not match " + ifMatch);
+        }
+        return current.version();
+    }
+
+    // The new version is only known when the change was conditional on a given version
+    private ResponseEntity<Void> updated(Long id, Long expectedVersion) {
+        var response = ResponseEntity.noContent();
+        if (expectedVersion != null && expectedVersion != UserService.ANY_VERSION) {
+            response.eTag(UserETags.of(new UserVersion(id, expectedVersion + 1)));
+        }
+        return response.build();
     }
 }
@@ -0,0 +1,58 @@
+package org.example.userservice.controller;
+
+import org.example.userservice.api.UserResponseDTO;
+import org.example.userservice.model.UserVersion;
+import org.springframework.http.ETag;
+
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Strong ETags of the users, built from the id and the entity version, e.g. "42-3".
+ */
+final class UserETags {
+
+    private UserETags() {
+    }
+
+    static String of(UserVersion version) {
+        return "\"" + version.id() + "-" + version.version() + "\"";
+    }
+
+    static String of(UserResponseDTO user) {
+        return of(new UserVersion(user.id(), user.version()));
+    }
+
+    /**
+     * Weak comparison, as required for If-None-Match.
+     */
+    static boolean matchesAny(String ifNoneMatch, UserVersion version) {
+        var current = ETag.create(of(version));
+        return ETag.parse(ifNoneMatch).stream()
+                .anyMatch(eTag -> eTag.isWildcard() || eTag.compare(current, false));
+    }
+
+    static boolean isWildcard(String ifMatch) {
+        return ETag.parse(ifMatch).stream().anyMatch(ETag::isWildcard);
+    }
+
+    /**
+     * Versions of the user with the given id listed in If-Match, weak tags never match there.
+     */
+    static Set<Long> versionsOf(String ifMatch, Long id) {
+        var prefix = id + "-";
+        return ETag.parse(ifMatch).stream()
+                .filter(eTag -> !eTag.weak() && eTag.tag().startsWith(prefix))
+                .map(eTag -> parseVersion(eTag.tag().substring(prefix.length())))
+                .filter(version -> version != null)
+                .collect(Collectors.toSet());
+    }
+
+    private static Long parseVersion(String version) {
+        try {
+            return Long.parseLong(version);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
@@ -1,6 +1,8 @@
 package org.example.userservice.controller.controllerAdvice;
 
+import org.example.userservice.util.ConstraintViolations;
 import org.springframework.beans.TypeMismatchException;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.ErrorResponseException;
@@ -20,6 +22,14 @@ public class ExceptionHandlerControllerAdvice {
         return new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST);
     }
 
+    @ExceptionHandler(DataIntegrityViolationException.class)
+    private ResponseEntity<String> handleDataIntegrityViolationException(DataIntegrityViolationException e) {
+        if (ConstraintViolations.isUniqueViolation(e)) {
+            return new ResponseEntity<>("Request conflicts with the existing data", HttpStatus.CONFLICT);
+        }
+        return new ResponseEntity<>("Request violates a data constraint", HttpStatus.BAD_REQUEST);
+    }
+
     @ExceptionHandler(Exception.class)
     private ResponseEntity<String> handleException(Exception e) {
         return new ResponseEntity<>(e.getMessage(), HttpStatus.INTERNAL_SERVER_ERROR);
@@ -1,30 +1,85 @@
 package org.example.userservice.controller.security;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.log4j.Log4j2;
+import org.example.userservice.api.security.RefreshTokenDto;
+import org.example.userservice.api.security.TokenIntrospectionDto;
 import org.example.userservice.api.security.UserDetailsDto;
+import org.example.userservice.service.security.LoginService;
+import org.example.userservice.service.security.LoginThrottle;
+import org.example.userservice.service.security.jwt.InvalidTokenException;
 import org.example.userservice.service.security.jwt.JwtTokenProvider;
+import org.example.userservice.service.security.jwt.RefreshTokenService;
+import org.example.userservice.service.security.jwt.TokenIntrospectionService;
+import org.example.userservice.service.security.jwt.TokenRevocationService;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.authentication.AuthenticationManager;
-import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
-import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.authentication.AccountStatusException;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.web.authentication.logout.SecurityContextLogoutHandler;
 import org.springframework.web.bind.annotation.*;
 
+import java.security.Principal;
+import java.time.Duration;
 import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
 
 @RestController
 @RequestMapping("/auth")
-@RequiredArgsConstructor
 @Log4j2
 public class AuthenticationController {
 
     private final JwtTokenProvider jwtTokenProvider;
-    private final UserDetailsService userDetailsService;
-    private final AuthenticationManager authenticationManager;
+    private final TokenIntrospectionService tokenIntrospectionService;
+    private final LoginService loginService;
+    private final RefreshTokenService refreshTokenService;
+    private final TokenRevocationService tokenRevocationService;
+    private final LoginThrottle loginThrottle;
+    private final AsyncTaskExecutor applicationTaskExecutor;
+
+    private final Map<String, Counter> loginAttemptCounters;
+    private final Map<String, Counter> refreshAttemptCounters;
+
+    // The executor is resolved by name, the task scheduler is an AsyncTaskExecutor as well
+    public AuthenticationController(JwtTokenProvider jwtTokenProvider,
+                                    TokenIntrospectionService tokenIntrospectionService,
+                                    LoginService loginService,
+                                    RefreshTokenService refreshTokenService,
+                                    TokenRevocationService tokenRevocationService,
+                                    LoginThrottle loginThrottle,
+                                    MeterRegistry meterRegistry,
+                                    @Qualifier("applicationTaskExecutor") AsyncTaskExecutor applicationTaskExecutor) {
+
+        this.jwtTokenProvider = jwtTokenProvider;
+        this.tokenIntrospectionService = tokenIntrospectionService;
+        this.loginService = loginService;
+        this.refreshTokenService = refreshTokenService;
+        this.tokenRevocationService = tokenRevocationService;
+        this.loginThrottle = loginThrottle;
+        this.applicationTaskExecutor = applicationTaskExecutor;
+
+        // Registered once, instead of being looked up in the registry on every attempt
+        this.loginAttemptCounters = attemptCounters(meterRegistry, "security.login.attempts",
+                Stream.of("success", "throttled", "overloaded", "bad_credentials", "account_status", "error"));
+        this.refreshAttemptCounters = attemptCounters(meterRegistry, "security.refresh.attempts",
+                Stream.concat(Stream.of("success", "account_status"),
+                        Stream.of(InvalidTokenException.Reason.values()).map(reason -> reason.name().toLowerCase(Locale.ROOT))));
+    }
 
     @PostMapping("/check-token")
     public ResponseEntity<Boolean> checkToken(@RequestBody String token) {
@@ -39,35 +94,167 @@ public class AuthenticationController {
         return ResponseEntity.ok(false);
     }
 
-    @PostMapping("/login")
-    public ResponseEntity<?> login(@RequestBody UserDetailsDto userDetailsDto) {
+    /**
+     * Validity, subject, authorities and remaining TTL of every token, in the order of the request.
+     * Only for callers with the INTROSPECT authority, each of them is rate-limited by the number of tokens.
+     */
+    @PostMapping("/introspect")
+    public ResponseEntity<?> introspect(@RequestBody List<String> tokens, Principal principal) {
 
-        try {
-            log.info("Token required for username '{}'", userDetailsDto.getUsername());
+        var retryAfter = tokenIntrospectionService.tryAcquire(principal.getName(), tokens.size());
+        if (!retryAfter.isZero()) {
+            log.warn("Failed to introspect tokens for '{}' - too many tokens introspected", principal.getName());
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, retryAfterInSeconds(retryAfter))
+                    .body("Too many tokens introspected, try again later");
+        }
 
-            authenticationManager.authenticate(new UsernamePasswordAuthenticationToken(userDetailsDto.getUsername(), userDetailsDto.getPassword()));
+        List<TokenIntrospectionDto> results = tokenIntrospectionService.introspect(tokens);
+        return ResponseEntity.ok(results);
+    }
 
-            var user = userDetailsService.loadUserByUsername(userDetailsDto.getUsername());
-            String token = jwtTokenProvider.createToken(user.getUsername(), user.getAuthorities());
+    @PostMapping("/login")
+    public CompletableFuture<ResponseEntity<?>> login(@RequestBody UserDetailsDto userDetailsDto, HttpServletRequest request) {
 
-            var response = new HashMap<String, String>();
-            response.put("username", user.getUsername());
-            response.put("token", token);
+        var username = userDetailsDto.getUsername();
+        var clientIp = request.getRemoteAddr();
 
-            log.info("Token was provided to the user '{}'", user.getUsername());
+        log.info("Token required for username '{}'", username);
 
-            return ResponseEntity.ok(response);
+        // Throttled attempts are refused before any lookup or hashing
+        var retryAfter = loginThrottle.tryAcquire(username, clientIp);
+        if (!retryAfter.isZero()) {
+            log.warn("Failed to provide token to the user '{}' - too many login attempts from '{}'", username, clientIp);
+            countLoginAttempt("throttled");
+            return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, retryAfterInSeconds(retryAfter))
+                    .body("Too many login attempts, try again later"));
+        }
+
+        try {
+            // The request thread is released while the password is being verified, and the refresh token
+            // (an INSERT) is issued off the CPU-sized hashing pool, so database latency does not hold its threads
+            return loginService.authenticate(username, userDetailsDto.getPassword())
+                    .thenApplyAsync(user -> {
+                        loginThrottle.onSuccess(username);
+                        countLoginAttempt("success");
+                        return createTokenResponse(user, refreshTokenService.issue(user.getUsername()));
+                    }, applicationTaskExecutor)
+                    .exceptionally(e -> {
+                        registerFailure(e, username, clientIp);
+                        return createFailureResponse(e);
+                    });
+
+        } catch (RejectedExecutionException e) {
+            log.warn("Failed to provide token to the user '{}' - too many logins in progress", userDetailsDto.getUsername());
+            countLoginAttempt("overloaded");
+            return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "1")
+                    .body("Too many logins in progress, try again later"));
 
         } catch (Exception e) {
-            log.error("Failed to provide token to the user - {}", e.getMessage());
+            registerFailure(e, username, clientIp);
+            return CompletableFuture.completedFuture(createFailureResponse(e));
+        }
+    }
+
+    /**
+     * Issues a new access token and the next refresh token, the password is not verified again.
+     */
+    @PostMapping("/refresh")
+    public ResponseEntity<?> refresh(@RequestBody RefreshTokenDto refreshTokenDto) {
+        try {
+            var rotation = refreshTokenService.rotate(refreshTokenDto.getRefreshToken());
+            countRefreshAttempt("success");
+            return createTokenResponse(rotation.user(), rotation.refreshToken());
+
+        } catch (InvalidTokenException e) {
+            countRefreshAttempt(e.getReason().name().toLowerCase(Locale.ROOT));
+            log.warn("Failed to refresh token - {}", e.getMessage());
+            return new ResponseEntity<>(e.getMessage(), HttpStatus.UNAUTHORIZED);
+
+        } catch (AuthenticationException e) {
+            countRefreshAttempt("account_status");
+            log.warn("Failed to refresh token - {}", e.getMessage());
             return new ResponseEntity<>(e.getMessage(), HttpStatus.UNAUTHORIZED);
         }
     }
 
+    /**
+     * Revokes the presented access token and, if one is given, the whole family of the refresh token.
+     * The access token is revoked on this instance only, the refresh token family on all of them.
+     */
     @PostMapping("/logout")
     @ResponseStatus(HttpStatus.NO_CONTENT)
-    public void logout(HttpServletRequest request, HttpServletResponse response) {
+    public void logout(@RequestBody(required = false) RefreshTokenDto refreshTokenDto,
+                       HttpServletRequest request, HttpServletResponse response) {
+
+        var token = jwtTokenProvider.resolveToken(request);
+        if (token != null) {
+            try {
+                tokenRevocationService.revoke(jwtTokenProvider.verifyToken(token));
+            } catch (InvalidTokenException e) {
+                log.info("Logout with an invalid token - {}", e.getMessage());
+            }
+        }
+        if (refreshTokenDto != null && refreshTokenDto.getRefreshToken() != null) {
+            refreshTokenService.revokeFamily(refreshTokenDto.getRefreshToken());
+        }
+
         var handler = new SecurityContextLogoutHandler();
         handler.logout(request, response, null);
     }
+
+    private ResponseEntity<?> createTokenResponse(UserDetails user, String refreshToken) {
+
+        String token = jwtTokenProvider.createToken(user.getUsername(), user.getAuthorities());
+
+        var response = new HashMap<String, String>();
+        response.put("username", user.getUsername());
+        response.put("token", token);
+        response.put("refreshToken", refreshToken);
+
+        log.info("Token was provided to the user '{}'", user.getUsername());
+
+        return ResponseEntity.ok(response);
+    }
+
+    private void registerFailure(Throwable e, String username, String clientIp) {
+        var cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+        if (cause instanceof BadCredentialsException) {
+            countLoginAttempt("bad_credentials");
+        } else if (cause instanceof AccountStatusException) {
+            countLoginAttempt("account_status");
+        } else {
+            countLoginAttempt("error");
+        }
+        if (cause instanceof AuthenticationException) {
+            loginThrottle.onFailure(username, clientIp);
+        }
+    }
+
+    private static String retryAfterInSeconds(Duration retryAfter) {
+        return String.valueOf(Math.max(1, (retryAfter.toMillis() + 999) / 1_000));
+    }
+
+    private void countLoginAttempt(String outcome) {
+        loginAttemptCounters.get(outcome).increment();
+    }
+
+    private void countRefreshAttempt(String outcome) {
+        refreshAttemptCounters.get(outcome).increment();
+    }
+
+    private static Map<String, Counter> attemptCounters(MeterRegistry meterRegistry, String name, Stream<String> outcomes) {
+        return outcomes.collect(Collectors.toUnmodifiableMap(outcome -> outcome,
+                outcome -> Counter.builder(name).tag("outcome", outcome).register(meterRegistry)));
+    }
+
+    private ResponseEntity<?> createFailureResponse(Throwable e) {
+        if (e instanceof CompletionException && e.getCause() != null) {
+            e = e.getCause();
+        }
+        log.error("Failed to provide token to the user - {}", e.getMessage());
+        return new ResponseEntity<>(e.getMessage(), HttpStatus.UNAUTHORIZED);
+    }
 }
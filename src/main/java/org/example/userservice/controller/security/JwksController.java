@@ -0,0 +1,33 @@
+package org.example.userservice.controller.security;
+
+import lombok.RequiredArgsConstructor;
+import org.example.userservice.service.security.jwt.JwtSigningKeys;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Public keys of the token signing keys, for the services that verify the tokens locally.
+ */
+@RestController
+@RequiredArgsConstructor
+public class JwksController {
+
+    private final JwtSigningKeys jwtSigningKeys;
+
+    // A new key is published before it becomes active, so the peers pick it up within this time
+    @Value("${security.jwt.jwks.max-age:300s}")
+    private Duration maxAge;
+
+    @GetMapping("/.well-known/jwks.json")
+    public ResponseEntity<Map<String, ?>> getJwks() {
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.maxAge(maxAge).cachePublic())
+                .body(jwtSigningKeys.getJwks());
+    }
+}
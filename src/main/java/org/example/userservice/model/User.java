@@ -2,22 +2,37 @@ package org.example.userservice.model;
 
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.NaturalId;
+import org.hibernate.annotations.NaturalIdCache;
 
 import java.time.LocalDate;
 
 @Entity
-@Table(name = "users")
-@NoArgsConstructor @AllArgsConstructor
+@Table(name = "users", uniqueConstraints = @UniqueConstraint(name = User.USERNAME_UNIQUE_KEY, columnNames = "username"))
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = User.CACHE_REGION)
+@NaturalIdCache(region = User.NATURAL_ID_CACHE_REGION)
+@NoArgsConstructor
 @Getter @Setter
 @EqualsAndHashCode(of = "username")
 @ToString
 public class User implements UserMainFields {
 
+    public static final String CACHE_REGION = "users";
+    public static final String NATURAL_ID_CACHE_REGION = "users-natural-ids";
+    public static final String USERNAME_UNIQUE_KEY = "uk_users_username";
+    public static final int MAX_LENGTH = 255;
+
+    // Pooled sequence (a table on MySQL) instead of IDENTITY, so that Hibernate can batch inserts
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "users_id_generator")
+    @SequenceGenerator(name = "users_id_generator", sequenceName = "users_id_sequence", allocationSize = 50)
     private Long id;
 
-    @Column(name = "username", nullable = false, unique = true)
+    // Mutable, since the username can be changed by an update
+    @NaturalId(mutable = true)
+    @Column(name = "username", nullable = false)
     private String username;
 
     @Column(name = "password", nullable = false)
@@ -28,4 +43,23 @@ public class User implements UserMainFields {
 
     @Column(name = "phone_number")
     private String phoneNumber;
+
+    // Generated by MySQL out of phone_number, only used for searching
+    @Column(name = "phone_number_normalized", insertable = false, updatable = false)
+    @Setter(AccessLevel.NONE)
+    @ToString.Exclude
+    private String phoneNumberNormalized;
+
+    // Incremented on every change, exposed to the clients as the ETag
+    @Version
+    @Column(name = "version", nullable = false)
+    private Long version;
+
+    public User(Long id, String username, String password, LocalDate birthDate, String phoneNumber) {
+        this.id = id;
+        this.username = username;
+        this.password = password;
+        this.birthDate = birthDate;
+        this.phoneNumber = phoneNumber;
+    }
 }
@@ -0,0 +1,8 @@
+package org.example.userservice.model;
+
+public record UserVersion(Long id, Long version) {
+
+    public static UserVersion of(User user) {
+        return new UserVersion(user.getId(), user.getVersion());
+    }
+}
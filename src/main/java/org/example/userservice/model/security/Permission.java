@@ -7,7 +7,9 @@ public enum Permission implements GrantedAuthority {
     READ,
     CREATE,
     UPDATE,
-    DELETE;
+    DELETE,
+    // Token introspection for the other services
+    INTROSPECT;
 
     @Override
     public String getAuthority() {
@@ -10,7 +10,9 @@ import java.util.Set;
 public enum Role {
 
     USER(Set.of(Permission.READ)),
-    ADMIN(Set.of(Permission.READ, Permission.CREATE, Permission.UPDATE, Permission.DELETE));
+    ADMIN(Set.of(Permission.READ, Permission.CREATE, Permission.UPDATE, Permission.DELETE, Permission.INTROSPECT)),
+    // Account of a service that introspects the tokens presented to it
+    SERVICE(Set.of(Permission.INTROSPECT));
 
     private final Set<Permission> permissions;
 
@@ -2,6 +2,10 @@ package org.example.userservice.model.security;
 
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.NaturalId;
+import org.hibernate.annotations.NaturalIdCache;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 
@@ -9,16 +13,22 @@ import java.util.Collection;
 
 @Entity
 @Table(name = "users_security")
-@NoArgsConstructor @AllArgsConstructor
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = UserDetailsImpl.CACHE_REGION)
+@NaturalIdCache(region = UserDetailsImpl.NATURAL_ID_CACHE_REGION)
+@NoArgsConstructor
 @Getter @Setter
 @EqualsAndHashCode(of = "username")
 @ToString
 public class UserDetailsImpl implements UserDetails {
 
+    public static final String CACHE_REGION = "users-security";
+    public static final String NATURAL_ID_CACHE_REGION = "users-security-natural-ids";
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Integer id;
 
+    @NaturalId
     @Column(name = "username", nullable = false, unique = true)
     private String username;
 
@@ -32,6 +42,23 @@ public class UserDetailsImpl implements UserDetails {
     @Column(name = "is_active")
     private Boolean isActive;
 
+    // Only incremented, on an entity read with a row lock (see TokenVersionRegistry), so that no older copy overwrites it
+    @Column(name = "token_version", nullable = false, insertable = false)
+    @Setter(AccessLevel.NONE)
+    private int tokenVersion;
+
+    public UserDetailsImpl(Integer id, String username, String password, Role role, Boolean isActive) {
+        this.id = id;
+        this.username = username;
+        this.password = password;
+        this.role = role;
+        this.isActive = isActive;
+    }
+
+    public void incrementTokenVersion() {
+        tokenVersion++;
+    }
+
     // Security
     @Override
     public Collection<? extends GrantedAuthority> getAuthorities() {
@@ -0,0 +1,16 @@
+package org.example.userservice.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.repository.NoRepositoryBean;
+
+import java.util.Optional;
+
+/**
+ * Lookup by the {@code @NaturalId} through the Hibernate session, so that it is resolved from the natural-id
+ * and entity caches instead of running a query.
+ */
+@NoRepositoryBean
+public interface NaturalIdRepository<T, ID> extends JpaRepository<T, ID> {
+
+    Optional<T> findBySimpleNaturalId(Object naturalId);
+}
@@ -1,11 +1,40 @@
 package org.example.userservice.repository;
 
+import jakarta.persistence.LockModeType;
+import org.example.userservice.api.UserResponseDTO;
 import org.example.userservice.model.User;
-import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
-public interface UserRepository extends JpaRepository<User, Long> {
-    Optional<User> findByUsername(@Param("username") String username);
+public interface UserRepository extends NaturalIdRepository<User, Long>, UserSearchRepository {
+
+    // Resolved from the natural-id cache
+    default Optional<User> findByUsername(String username) {
+        return findBySimpleNaturalId(username);
+    }
+
+    // Read model, only the columns of UserResponseDTO are selected
+    List<UserResponseDTO> findResponsesByIdIn(@Param("ids") Collection<Long> ids);
+    List<UserResponseDTO> findResponsesByUsernameIn(@Param("usernames") Collection<String> usernames);
+    List<UserResponseDTO> findResponsesByIdGreaterThanOrderByIdAsc(@Param("id") Long id, Limit limit);
+
+    @Query("SELECT u.username FROM User u WHERE u.username IN :usernames")
+    List<String> findExistingUsernames(@Param("usernames") Collection<String> usernames);
+
+    boolean existsByUsername(String username);
+
+    // Keyset scan over the unique index on 'users.username'
+    @Query("SELECT u.username FROM User u WHERE u.username > :username ORDER BY u.username")
+    List<String> findUsernamesAfter(@Param("username") String username, Limit limit);
+
+    // Skips the second-level cache, the row is read as committed and locked until the end of the transaction
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT u FROM User u WHERE u.id = :id")
+    Optional<User> findForUpdateById(@Param("id") Long id);
 }
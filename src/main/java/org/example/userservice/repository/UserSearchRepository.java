@@ -0,0 +1,16 @@
+package org.example.userservice.repository;
+
+import org.example.userservice.api.UserResponseDTO;
+import org.example.userservice.model.User;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.List;
+
+public interface UserSearchRepository {
+
+    /**
+     * Users matching the specification in the id order, only the columns of UserResponseDTO are selected.
+     */
+    List<UserResponseDTO> findResponses(Specification<User> specification, Limit limit);
+}
@@ -0,0 +1,37 @@
+package org.example.userservice.repository;
+
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import org.example.userservice.api.UserResponseDTO;
+import org.example.userservice.model.User;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.List;
+
+@RequiredArgsConstructor
+class UserSearchRepositoryImpl implements UserSearchRepository {
+
+    private final EntityManager entityManager;
+
+    @Override
+    public List<UserResponseDTO> findResponses(Specification<User> specification, Limit limit) {
+
+        var cb = entityManager.getCriteriaBuilder();
+        var query = cb.createQuery(UserResponseDTO.class);
+        var root = query.from(User.class);
+
+        query.select(cb.construct(UserResponseDTO.class,
+                        root.get("id"),
+                        root.get("username"),
+                        root.get("birthDate"),
+                        root.get("phoneNumber"),
+                        root.get("version")))
+                .where(specification.toPredicate(root, query, cb))
+                .orderBy(cb.asc(root.get("id")));
+
+        return entityManager.createQuery(query)
+                .setMaxResults(limit.max())
+                .getResultList();
+    }
+}
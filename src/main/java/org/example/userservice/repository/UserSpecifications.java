@@ -0,0 +1,57 @@
+package org.example.userservice.repository;
+
+import org.example.userservice.model.User;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.time.LocalDate;
+import java.util.regex.Pattern;
+
+/**
+ * Search filters of {@link User}, each of them is backed by an index (see V2__user_search_indexes.sql).
+ */
+public final class UserSpecifications {
+
+    private static final char LIKE_ESCAPE = '\\';
+    private static final Pattern PHONE_NUMBER_SEPARATORS = Pattern.compile("[ \\-().+]");
+
+    private UserSpecifications() {
+    }
+
+    // Case-insensitive through the column collation, a LOWER() around the column would bypass the index
+    public static Specification<User> usernameStartsWith(String prefix) {
+        return (root, query, cb) -> cb.like(root.get("username"), escapeLike(prefix) + "%", LIKE_ESCAPE);
+    }
+
+    public static Specification<User> phoneNumberEquals(String phoneNumber) {
+        return (root, query, cb) -> cb.equal(root.get("phoneNumberNormalized"), normalizePhoneNumber(phoneNumber));
+    }
+
+    public static Specification<User> bornOnOrAfter(LocalDate date) {
+        return (root, query, cb) -> cb.greaterThanOrEqualTo(root.get("birthDate"), date);
+    }
+
+    public static Specification<User> bornOnOrBefore(LocalDate date) {
+        return (root, query, cb) -> cb.lessThanOrEqualTo(root.get("birthDate"), date);
+    }
+
+    public static Specification<User> idGreaterThan(Long id) {
+        return (root, query, cb) -> cb.greaterThan(root.get("id"), id);
+    }
+
+    // Same as the expression of the generated phone_number_normalized column
+    public static String normalizePhoneNumber(String phoneNumber) {
+        return PHONE_NUMBER_SEPARATORS.matcher(phoneNumber).replaceAll("");
+    }
+
+    private static String escapeLike(String value) {
+        var escaped = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            var c = value.charAt(i);
+            if (c == LIKE_ESCAPE || c == '%' || c == '_') {
+                escaped.append(LIKE_ESCAPE);
+            }
+            escaped.append(c);
+        }
+        return escaped.toString();
+    }
+}
@@ -1,11 +1,27 @@
 package org.example.userservice.repository.security;
 
+import jakarta.persistence.LockModeType;
 import org.example.userservice.model.security.UserDetailsImpl;
-import org.springframework.data.jpa.repository.JpaRepository;
+import org.example.userservice.repository.NaturalIdRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
 import java.util.Optional;
 
-public interface UserDetailsRepository extends JpaRepository<UserDetailsImpl, Integer> {
-    Optional<UserDetailsImpl> findByUsername(@Param("username") String username);
+public interface UserDetailsRepository extends NaturalIdRepository<UserDetailsImpl, Integer> {
+
+    // Resolved from the natural-id cache
+    default Optional<UserDetailsImpl> findByUsername(String username) {
+        return findBySimpleNaturalId(username);
+    }
+
+    // A query instead of the natural-id cache, which may hold a copy changed through another instance since
+    @Query("SELECT u FROM UserDetailsImpl u WHERE u.username = :username")
+    Optional<UserDetailsImpl> findCurrentByUsername(@Param("username") String username);
+
+    // Skips the second-level cache, the row is read as committed and locked until the end of the transaction
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT u FROM UserDetailsImpl u WHERE u.username = :username")
+    Optional<UserDetailsImpl> findForUpdateByUsername(@Param("username") String username);
 }
@@ -0,0 +1,66 @@
+package org.example.userservice.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.annotation.Timed;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.example.userservice.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Writes all users as newline-delimited JSON, reading them in keyset chunks,
+ * so memory usage does not depend on the number of users.
+ */
+@Service
+@RequiredArgsConstructor
+@Log4j2
+public class UserExportService {
+
+    private final UserRepository userRepository;
+    private final ObjectMapper objectMapper;
+
+    @Value("${users.export.chunk-size:1000}")
+    private int chunkSize;
+
+    @Timed(value = "user.service", extraTags = {"operation", "exportAsNdjson"}, histogram = true)
+    public long exportAsNdjson(OutputStream outputStream) throws IOException {
+
+        var generator = objectMapper.createGenerator(outputStream)
+                .configure(JsonGenerator.Feature.AUTO_CLOSE_TARGET, false);
+
+        long exported = 0;
+        var lastId = 0L;
+
+        while (true) {
+
+            var users = userRepository.findResponsesByIdGreaterThanOrderByIdAsc(lastId, Limit.of(chunkSize));
+
+            for (var user : users) {
+                generator.writeObject(user);
+                generator.writeRaw('\n');
+            }
+
+            // Every chunk is pushed to the client right away
+            generator.flush();
+
+            exported += users.size();
+
+            if (users.size() < chunkSize) {
+                break;
+            }
+            lastId = users.get(users.size() - 1).id();
+        }
+
+        generator.close();
+
+        log.info("{} users were exported", exported);
+
+        return exported;
+    }
+}
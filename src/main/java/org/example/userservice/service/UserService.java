@@ -1,48 +1,318 @@
 package org.example.userservice.service;
 
+import io.micrometer.core.annotation.Timed;
 import jakarta.annotation.Nonnull;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.log4j.Log4j2;
+import org.example.userservice.api.UserBatchResultDTO;
+import org.example.userservice.api.UserPageDTO;
 import org.example.userservice.api.UserRequestDTO;
+import org.example.userservice.api.UserResponseDTO;
 import org.example.userservice.model.User;
 import org.example.userservice.model.UserMainFields;
+import org.example.userservice.model.UserVersion;
 import org.example.userservice.repository.UserRepository;
+import org.example.userservice.repository.UserSpecifications;
+import org.example.userservice.util.ConstraintViolations;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.server.ResponseStatusException;
 
-import java.util.List;
-import java.util.Optional;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 @Log4j2
 public class UserService {
 
+    /**
+     * Expected version that matches any version of an existing user, as 'If-Match: *' does.
+     */
+    public static final long ANY_VERSION = -1;
+
     private final UserRepository userRepository;
+    private final UsernameAvailabilityService usernameAvailabilityService;
+
+    @Value("${users.page.default-size:20}")
+    private int defaultPageSize;
+
+    @Value("${users.page.max-size:100}")
+    private int maxPageSize;
+
+    @Value("${users.batch.max-size:5000}")
+    private int maxBatchSize;
+
+    @Value("${users.multi-get.max-keys:100}")
+    private int maxMultiGetKeys;
 
-    public List<User> getAll() {
-        return userRepository.findAll();
+    @Timed(value = "user.service", extraTags = {"operation", "getPage"}, histogram = true)
+    @Transactional(readOnly = true)
+    public UserPageDTO getPage(String pageToken, Integer size) {
+
+        var pageSize = resolvePageSize(size);
+        var afterId = decodePageToken(pageToken);
+
+        // One extra row tells whether there is a next page
+        var users = userRepository.findResponsesByIdGreaterThanOrderByIdAsc(afterId, Limit.of(pageSize + 1));
+
+        return toPage(users, pageSize);
     }
 
-    public User getById(Long id) {
+    /**
+     * Filters are combined with AND, at least one is required, so that the search never scans the whole table.
+     * The username prefix is case-insensitive and the phone number is compared without separators.
+     */
+    @Timed(value = "user.service", extraTags = {"operation", "search"}, histogram = true)
+    @Transactional(readOnly = true)
+    public UserPageDTO search(String usernamePrefix, String phoneNumber, LocalDate birthDateFrom, LocalDate birthDateTo,
+                              String pageToken, Integer size) {
+
+        var filters = new ArrayList<Specification<User>>();
+        if (usernamePrefix != null && !usernamePrefix.isBlank()) {
+            filters.add(UserSpecifications.usernameStartsWith(usernamePrefix));
+        }
+        if (phoneNumber != null && !phoneNumber.isBlank()) {
+            if (UserSpecifications.normalizePhoneNumber(phoneNumber).isEmpty()) {
+                var errorMessage = "Invalid phone number - " + phoneNumber;
+                log.warn(errorMessage);
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, errorMessage);
+            }
+            filters.add(UserSpecifications.phoneNumberEquals(phoneNumber));
+        }
+        if (birthDateFrom != null) {
+            filters.add(UserSpecifications.bornOnOrAfter(birthDateFrom));
+        }
+        if (birthDateTo != null) {
+            filters.add(UserSpecifications.bornOnOrBefore(birthDateTo));
+        }
+
+        if (filters.isEmpty()) {
+            var errorMessage = "At least one search filter is required";
+            log.warn(errorMessage);
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, errorMessage);
+        }
+        if (birthDateFrom != null && birthDateTo != null && birthDateFrom.isAfter(birthDateTo)) {
+            var errorMessage = "Invalid birth date range - " + birthDateFrom + " is after " + birthDateTo;
+            log.warn(errorMessage);
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, errorMessage);
+        }
+
+        var pageSize = resolvePageSize(size);
+        var afterId = decodePageToken(pageToken);
+
+        var specification = Specification.allOf(filters).and(UserSpecifications.idGreaterThan(afterId));
+        var users = userRepository.findResponses(specification, Limit.of(pageSize + 1));
+
+        return toPage(users, pageSize);
+    }
+
+    @Timed(value = "user.service", extraTags = {"operation", "getById"}, histogram = true)
+    @Transactional(readOnly = true)
+    public UserResponseDTO getById(Long id) {
         return userRepository.findById(id)
+                .map(UserResponseDTO::of)
                 .orElse(null);
     }
 
-    public User getByUsername(String username) {
+    @Timed(value = "user.service", extraTags = {"operation", "getByUsername"}, histogram = true)
+    @Transactional(readOnly = true)
+    public UserResponseDTO getByUsername(String username) {
         return userRepository.findByUsername(username)
+                .map(UserResponseDTO::of)
+                .orElse(null);
+    }
+
+    @Timed(value = "user.service", extraTags = {"operation", "getVersionById"}, histogram = true)
+    @Transactional(readOnly = true)
+    public UserVersion getVersionById(Long id) {
+        return userRepository.findById(id)
+                .map(UserVersion::of)
                 .orElse(null);
     }
 
+    @Timed(value = "user.service", extraTags = {"operation", "getVersionByUsername"}, histogram = true)
+    @Transactional(readOnly = true)
+    public UserVersion getVersionByUsername(String username) {
+        return userRepository.findByUsername(username)
+                .map(UserVersion::of)
+                .orElse(null);
+    }
+
+    /**
+     * Free usernames are answered from memory, only a probably taken one is checked against the database.
+     */
+    @Timed(value = "user.service", extraTags = {"operation", "isUsernameAvailable"}, histogram = true)
+    public boolean isUsernameAvailable(String username) {
+
+        if (username == null || username.isBlank()) {
+            var errorMessage = "Username is required";
+            log.warn(errorMessage);
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, errorMessage);
+        }
+
+        return usernameAvailabilityService.isAvailable(username);
+    }
+
+    /**
+     * Resolves all the ids with a single query, ids that were not found are mapped to null.
+     */
+    @Timed(value = "user.service", extraTags = {"operation", "getAllByIds"}, histogram = true)
+    @Transactional(readOnly = true)
+    public Map<Long, UserResponseDTO> getAllByIds(@Nonnull Collection<Long> ids) {
+
+        checkMultiGetSize(ids.size());
+
+        var result = new LinkedHashMap<Long, UserResponseDTO>();
+        ids.forEach(id -> result.put(id, null));
+
+        if (!result.isEmpty()) {
+            userRepository.findResponsesByIdIn(result.keySet())
+                    .forEach(user -> result.put(user.id(), user));
+        }
+
+        return result;
+    }
+
+    /**
+     * Resolves all the usernames with a single query, usernames that were not found are mapped to null.
+     */
+    @Timed(value = "user.service", extraTags = {"operation", "getAllByUsernames"}, histogram = true)
+    @Transactional(readOnly = true)
+    public Map<String, UserResponseDTO> getAllByUsernames(@Nonnull Collection<String> usernames) {
+
+        checkMultiGetSize(usernames.size());
+
+        var result = new LinkedHashMap<String, UserResponseDTO>();
+        usernames.forEach(username -> result.put(username, null));
+
+        if (!result.isEmpty()) {
+
+            // The database compares usernames case-insensitively, so the keys are matched the same way
+            var requestedUsernames = new HashMap<String, List<String>>();
+            result.keySet().forEach(username -> requestedUsernames
+                    .computeIfAbsent(username.toLowerCase(Locale.ROOT), key -> new ArrayList<>())
+                    .add(username));
+
+            userRepository.findResponsesByUsernameIn(result.keySet())
+                    .forEach(user -> requestedUsernames
+                            .getOrDefault(user.username().toLowerCase(Locale.ROOT), List.of())
+                            .forEach(username -> result.put(username, user)));
+        }
+
+        return result;
+    }
+
+    @Timed(value = "user.service", extraTags = {"operation", "create"}, histogram = true)
     public User create(@Nonnull UserMainFields user) {
 
-        if (getByUsername(user.getUsername()) != null) {
+        var userEntity = getUserEntityOutOfDTO(user);
+        if (userEntity == null) {
+            var errorMessage = "Unknown type of user - " + user;
+            log.error(errorMessage);
+            throw new RuntimeException(errorMessage);
+        }
+
+        checkValid(userEntity, true, true);
+
+        // Only the INSERT is issued, the unique constraint on 'users.username' decides between concurrent creates
+        try {
+            var userCreated = userRepository.saveAndFlush(userEntity);
+            usernameAvailabilityService.markTaken(userCreated.getUsername());
+            return userCreated;
+        } catch (DataIntegrityViolationException e) {
+            if (!ConstraintViolations.isUniqueViolationOf(e, User.USERNAME_UNIQUE_KEY)) {
+                throw e;
+            }
             var errorMessage = "User with username '" + user.getUsername() + "' already exists";
             log.error(errorMessage);
             throw new ResponseStatusException(HttpStatus.CONFLICT, errorMessage);
         }
+    }
+
+    @Timed(value = "user.service", extraTags = {"operation", "createAll"}, histogram = true)
+    @Transactional
+    public List<UserBatchResultDTO> createAll(@Nonnull List<? extends UserMainFields> users) {
+
+        if (users.size() > maxBatchSize) {
+            var errorMessage = "Batch contains " + users.size() + " users, the maximum is " + maxBatchSize;
+            log.warn(errorMessage);
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, errorMessage);
+        }
+
+        // All conflicts with the existing users are found in a single query
+        var usernames = users.stream()
+                .map(UserMainFields::getUsername)
+                .filter(username -> username != null && !username.isBlank())
+                .collect(Collectors.toSet());
+
+        var takenUsernames = new HashSet<String>();
+        if (!usernames.isEmpty()) {
+            userRepository.findExistingUsernames(usernames)
+                    .forEach(username -> takenUsernames.add(username.toLowerCase(Locale.ROOT)));
+        }
+
+        var results = new ArrayList<UserBatchResultDTO>(users.size());
+        var usersToCreate = new ArrayList<User>();
+        var resultsOfCreated = new ArrayList<UserBatchResultDTO>();
+
+        for (int index = 0; index < users.size(); index++) {
+
+            var user = users.get(index);
+            var username = user.getUsername();
+            var result = new UserBatchResultDTO(index, username, null, null, null);
+            results.add(result);
+
+            var userEntity = getUserEntityOutOfDTO(user);
+            var invalidReason = userEntity == null ? "Username is required" : findInvalidReason(userEntity, true, true);
+            if (invalidReason != null) {
+                result.setStatus(UserBatchResultDTO.Status.INVALID);
+                result.setMessage(invalidReason);
+                continue;
+            }
+
+            if (!takenUsernames.add(username.toLowerCase(Locale.ROOT))) {
+                result.setStatus(UserBatchResultDTO.Status.CONFLICT);
+                result.setMessage("User with username '" + username + "' already exists");
+                continue;
+            }
+
+            usersToCreate.add(userEntity);
+            resultsOfCreated.add(result);
+        }
+
+        // Ids come from the pooled sequence, the inserts themselves are sent in JDBC batches on flush
+        var usersCreated = userRepository.saveAll(usersToCreate);
+
+        for (int i = 0; i < usersCreated.size(); i++) {
+            usernameAvailabilityService.markTaken(usersCreated.get(i).getUsername());
+            var result = resultsOfCreated.get(i);
+            result.setStatus(UserBatchResultDTO.Status.CREATED);
+            result.setId(usersCreated.get(i).getId());
+        }
+
+        log.info("Batch of {} users processed, {} created", users.size(), usersCreated.size());
+
+        return results;
+    }
+
+    /**
+     * Replaces all the fields, a blank password keeps the current one.
+     * If the expected version is given, the user is updated only if it has not been changed since
+     * ({@link #ANY_VERSION} only requires the user to exist).
+     *
+     * @return the user as it was stored
+     */
+    @Timed(value = "user.service", extraTags = {"operation", "update"}, histogram = true)
+    @Transactional
+    public UserResponseDTO update(Long id, Long expectedVersion, @Nonnull UserMainFields user) {
 
         var userEntity = getUserEntityOutOfDTO(user);
         if (userEntity == null) {
@@ -51,43 +321,201 @@ public class UserService {
             throw new RuntimeException(errorMessage);
         }
 
-        return userRepository.save(userEntity);
+        checkValid(userEntity, true, false);
+
+        var userStored = findForUpdate(id, expectedVersion);
+        userStored.setUsername(userEntity.getUsername());
+        if (blankToNull(userEntity.getPassword()) != null) {
+            userStored.setPassword(userEntity.getPassword());
+        }
+        userStored.setBirthDate(userEntity.getBirthDate());
+        userStored.setPhoneNumber(userEntity.getPhoneNumber());
+
+        flushUpdate(userStored);
+
+        return UserResponseDTO.of(userStored);
     }
 
+    /**
+     * Updates only the supplied (non-null) fields, a blank password keeps the current one.
+     * If the expected version is given, the user is updated only if it has not been changed since
+     * ({@link #ANY_VERSION} only requires the user to exist).
+     */
+    @Timed(value = "user.service", extraTags = {"operation", "patch"}, histogram = true)
     @Transactional
-    public User update(Long id, @Nonnull UserMainFields user) {
+    public void patch(Long id, Long expectedVersion, @Nonnull UserMainFields user) {
 
-        var userById = getById(id);
-        if (userById == null) {
-            var errorMessage = "User with id '" + id + "' does not exist";
+        var userEntity = getUserEntityOutOfDTO(user);
+        if (userEntity == null) {
+            var errorMessage = "Unknown type of user - " + user;
             log.error(errorMessage);
-            throw new ResponseStatusException(HttpStatus.NOT_FOUND, errorMessage);
+            throw new RuntimeException(errorMessage);
         }
 
-        var userByUsername = getByUsername(user.getUsername());
-        if (userByUsername != null && !userByUsername.getId().equals(id)) {
-            var errorMessage = "User with username '" + id + "' already exists";
+        checkValid(userEntity, false, false);
+
+        var userStored = findForUpdate(id, expectedVersion);
+        if (blankToNull(userEntity.getUsername()) != null) {
+            userStored.setUsername(userEntity.getUsername());
+        }
+        if (blankToNull(userEntity.getPassword()) != null) {
+            userStored.setPassword(userEntity.getPassword());
+        }
+        if (userEntity.getBirthDate() != null) {
+            userStored.setBirthDate(userEntity.getBirthDate());
+        }
+        if (userEntity.getPhoneNumber() != null) {
+            userStored.setPhoneNumber(userEntity.getPhoneNumber());
+        }
+
+        flushUpdate(userStored);
+    }
+
+    /**
+     * If the expected version is given, the user is deleted only if it has not been changed since,
+     * a user that does not exist does not match any version either, {@link #ANY_VERSION} included.
+     */
+    @Timed(value = "user.service", extraTags = {"operation", "deleteById"}, histogram = true)
+    @Transactional
+    public void deleteById(Long id, Long expectedVersion) {
+
+        if (expectedVersion == null) {
+            userRepository.findForUpdateById(id).ifPresent(userRepository::delete);
+            return;
+        }
+
+        userRepository.delete(findForUpdate(id, expectedVersion));
+    }
+
+    /**
+     * Reads the current row with a row lock instead of the second-level cache, which may hold an older version
+     * written through another instance. The changes are then written by dirty checking, which updates
+     * the cached entry of this user only.
+     */
+    private User findForUpdate(Long id, Long expectedVersion) {
+
+        var user = userRepository.findForUpdateById(id).orElse(null);
+
+        if (user == null) {
+            var errorMessage = expectedVersion == null
+                    ? "User with id '" + id + "' does not exist"
+                    : "User with id '" + id + "' does not exist, so it does not match the given version";
+            log.warn(errorMessage);
+            throw new ResponseStatusException(
+                    expectedVersion == null ? HttpStatus.NOT_FOUND : HttpStatus.PRECONDITION_FAILED, errorMessage);
+        }
+
+        if (expectedVersion != null && expectedVersion != ANY_VERSION && !expectedVersion.equals(user.getVersion())) {
+            var errorMessage = "User with id '" + id + "' has been modified since the given version";
+            log.warn(errorMessage);
+            throw new ResponseStatusException(HttpStatus.PRECONDITION_FAILED, errorMessage);
+        }
+
+        return user;
+    }
+
+    // Uniqueness of the username is left to the unique constraint, so it is not looked up before the UPDATE
+    private void flushUpdate(User user) {
+
+        try {
+            userRepository.flush();
+        } catch (DataIntegrityViolationException e) {
+            if (!ConstraintViolations.isUniqueViolationOf(e, User.USERNAME_UNIQUE_KEY)) {
+                throw e;
+            }
+            var errorMessage = "User with username '" + user.getUsername() + "' already exists";
             log.warn(errorMessage);
             throw new ResponseStatusException(HttpStatus.CONFLICT, errorMessage);
         }
 
-        var userEntity = getUserEntityOutOfDTO(user);
-        if (userEntity == null) {
-            var errorMessage = "Unknown type of user - " + user;
-            log.error(errorMessage);
-            throw new RuntimeException(errorMessage);
+        usernameAvailabilityService.markTaken(user.getUsername());
+    }
+
+    // Checked up front, so that a missing or too long value is reported as such instead of failing on a constraint
+    private void checkValid(User user, boolean usernameRequired, boolean passwordRequired) {
+        var invalidReason = findInvalidReason(user, usernameRequired, passwordRequired);
+        if (invalidReason != null) {
+            log.warn(invalidReason);
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, invalidReason);
+        }
+    }
+
+    private static String findInvalidReason(User user, boolean usernameRequired, boolean passwordRequired) {
+        if (usernameRequired && blankToNull(user.getUsername()) == null) {
+            return "Username is required";
+        }
+        if (passwordRequired && blankToNull(user.getPassword()) == null) {
+            return "Password is required";
+        }
+        if (isTooLong(user.getUsername())) {
+            return "Username is longer than " + User.MAX_LENGTH + " characters";
+        }
+        if (isTooLong(user.getPassword())) {
+            return "Password is longer than " + User.MAX_LENGTH + " characters";
+        }
+        if (isTooLong(user.getPhoneNumber())) {
+            return "Phone number is longer than " + User.MAX_LENGTH + " characters";
+        }
+        return null;
+    }
+
+    private static boolean isTooLong(String value) {
+        return value != null && value.codePointCount(0, value.length()) > User.MAX_LENGTH;
+    }
+
+    private static String blankToNull(String value) {
+        return value == null || value.isBlank() ? null : value;
+    }
+
+    protected void checkMultiGetSize(int size) {
+        if (size > maxMultiGetKeys) {
+            var errorMessage = "Too many keys requested - " + size + ", the maximum is " + maxMultiGetKeys;
+            log.warn(errorMessage);
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, errorMessage);
         }
+    }
 
-        if (Optional.ofNullable(userEntity.getPassword()).orElse("").isBlank()) {
-            userEntity.setPassword(userById.getPassword());
+    private UserPageDTO toPage(List<UserResponseDTO> users, int pageSize) {
+
+        if (users.size() <= pageSize) {
+            return new UserPageDTO(users, null);
         }
 
-        userEntity.setId(id);
-        return userRepository.save(userEntity);
+        var page = new ArrayList<>(users.subList(0, pageSize));
+        var nextPageToken = encodePageToken(page.get(pageSize - 1).id());
+        return new UserPageDTO(page, nextPageToken);
     }
 
-    public void deleteById(Long id) {
-        userRepository.deleteById(id);
+    protected int resolvePageSize(Integer size) {
+        if (size == null) {
+            return Math.min(defaultPageSize, maxPageSize);
+        }
+        if (size < 1) {
+            var errorMessage = "Page size must be positive, but was " + size;
+            log.warn(errorMessage);
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, errorMessage);
+        }
+        return Math.min(size, maxPageSize);
+    }
+
+    protected String encodePageToken(Long lastId) {
+        return Base64.getUrlEncoder()
+                .withoutPadding()
+                .encodeToString(String.valueOf(lastId).getBytes(StandardCharsets.UTF_8));
+    }
+
+    protected Long decodePageToken(String pageToken) {
+        if (pageToken == null || pageToken.isBlank()) {
+            return 0L;
+        }
+        try {
+            var decoded = new String(Base64.getUrlDecoder().decode(pageToken), StandardCharsets.UTF_8);
+            return Long.parseLong(decoded);
+        } catch (IllegalArgumentException e) {
+            var errorMessage = "Invalid page token - " + pageToken;
+            log.warn(errorMessage);
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, errorMessage);
+        }
     }
 
     protected User getUserEntityOutOfDTO(UserMainFields user) {
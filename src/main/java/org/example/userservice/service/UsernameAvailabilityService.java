@@ -0,0 +1,208 @@
+package org.example.userservice.service;
+
+import lombok.extern.log4j.Log4j2;
+import org.example.userservice.repository.UserRepository;
+import org.example.userservice.util.BloomFilter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.text.Normalizer;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/**
+ * Answers username availability from a Bloom filter of all taken usernames, so a free username costs no query.
+ * A probable hit is confirmed against the database.
+ * A Bloom filter cannot forget, deleted and renamed usernames stay in it until the periodic rebuild,
+ * which is also when usernames taken through other instances get into it. The filter answers only while
+ * its scan started less than the max age ago, so a username taken through another instance is reported
+ * as free for at most that long; past it, all the checks go to the database until the next rebuild.
+ */
+@Service
+@Log4j2
+public class UsernameAvailabilityService {
+
+    private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+
+    // Letters the collation treats as ASCII sequences without a canonical decomposition (sharp s, ligatures, stroked letters, eth, thorn)
+    private static final Map<Character, String> EXPANSIONS = Map.of(
+            '\u00DF', "ss", '\u00E6', "ae", '\u0153', "oe", '\u00F8', "o", '\u0111', "d",
+            '\u00F0', "d", '\u0142', "l", '\u0127', "h", '\u00FE', "th");
+
+    private final UserRepository userRepository;
+    private final long expectedUsers;
+    private final double falsePositiveProbability;
+    private final int chunkSize;
+    private final long maxAgeInNanos;
+
+    private final Object lock = new Object();
+    private final Object rebuildLock = new Object();
+    private final AtomicLong answeredByFilter = new AtomicLong();
+    private final AtomicLong answeredByDatabase = new AtomicLong();
+
+    // Null until the first scan has finished, all the checks go to the database meanwhile
+    private volatile Filter filter;
+
+    // Taken while a scan may still miss them, they are added to the rebuilt filter on top of the scan
+    private Set<String> takenSinceRebuild = new HashSet<>();
+    private Set<String> takenBeforeRebuild = Set.of();
+
+    public UsernameAvailabilityService(UserRepository userRepository,
+                                       @Value("${users.username-filter.expected-users:1000000}") long expectedUsers,
+                                       @Value("${users.username-filter.false-positive-probability:0.01}") double falsePositiveProbability,
+                                       @Value("${users.username-filter.chunk-size:10000}") int chunkSize,
+                                       @Value("${users.username-filter.max-age:60000}") long maxAgeInMillis) {
+        this.userRepository = userRepository;
+        this.expectedUsers = expectedUsers;
+        this.falsePositiveProbability = falsePositiveProbability;
+        this.chunkSize = chunkSize;
+        this.maxAgeInNanos = TimeUnit.MILLISECONDS.toNanos(maxAgeInMillis);
+    }
+
+    public boolean isAvailable(String username) {
+
+        var key = toKey(username);
+        var current = filter;
+        if (current != null && System.nanoTime() - current.scanStartedAt() < maxAgeInNanos
+                && isAscii(key) && !current.bloomFilter().mightContain(key)) {
+            answeredByFilter.incrementAndGet();
+            return true;
+        }
+
+        answeredByDatabase.incrementAndGet();
+        return !userRepository.existsByUsername(username);
+    }
+
+    /**
+     * Called before the change is committed, a rolled back change only leaves a false positive behind.
+     */
+    public void markTaken(String username) {
+
+        if (username == null || username.isBlank()) {
+            return;
+        }
+
+        var key = toKey(username);
+        synchronized (lock) {
+            var current = filter;
+            if (current != null) {
+                current.bloomFilter().put(key);
+            }
+            takenSinceRebuild.add(key);
+        }
+    }
+
+    // The first scan runs off the startup path, the database answers until it has finished
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildOnStartup() {
+        new SimpleAsyncTaskExecutor("username-filter-").execute(this::tryRebuild);
+    }
+
+    private void tryRebuild() {
+        try {
+            rebuild();
+        } catch (RuntimeException e) {
+            log.error("Failed to build the username filter - {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Scans the usernames in keyset chunks over the unique index, the filter is sized for twice the current users.
+     */
+    @Scheduled(fixedDelayString = "${users.username-filter.rebuild-interval:30000}",
+            initialDelayString = "${users.username-filter.rebuild-interval:30000}")
+    public void rebuild() {
+        // Concurrent rebuilds would swap the taken sets under each other
+        synchronized (rebuildLock) {
+            doRebuild();
+        }
+    }
+
+    private void doRebuild() {
+
+        // Usernames taken by transactions that started before the scan may still be uncommitted when it reads them
+        synchronized (lock) {
+            takenBeforeRebuild = takenSinceRebuild;
+            takenSinceRebuild = new HashSet<>();
+        }
+
+        var scanStartedAt = System.nanoTime();
+        var rebuilt = new BloomFilter(Math.max(expectedUsers, 2 * userRepository.count()), falsePositiveProbability);
+
+        long scanned = 0;
+        var lastUsername = "";
+
+        while (true) {
+
+            var usernames = userRepository.findUsernamesAfter(lastUsername, Limit.of(chunkSize));
+            usernames.forEach(username -> rebuilt.put(toKey(username)));
+            scanned += usernames.size();
+
+            if (usernames.size() < chunkSize) {
+                break;
+            }
+            lastUsername = usernames.get(usernames.size() - 1);
+        }
+
+        synchronized (lock) {
+            takenBeforeRebuild.forEach(rebuilt::put);
+            takenSinceRebuild.forEach(rebuilt::put);
+            filter = new Filter(rebuilt, scanStartedAt);
+        }
+
+        log.info("Username filter was rebuilt out of {} users, {} bits", scanned, rebuilt.getBitCount());
+    }
+
+    public long getAnsweredByFilterCount() {
+        return answeredByFilter.get();
+    }
+
+    public long getAnsweredByDatabaseCount() {
+        return answeredByDatabase.get();
+    }
+
+    public long getBitCount() {
+        var current = filter;
+        return current == null ? 0 : current.bloomFilter().getBitCount();
+    }
+
+    /**
+     * Approximates the accent- and case-insensitive collation of 'users.username' (utf8mb4_0900_ai_ci).
+     * Folding more than the collation only costs a query, folding less would answer a taken username as free,
+     * so keys that are still not plain ASCII are never answered by the filter.
+     */
+    static String toKey(String username) {
+
+        var decomposed = Normalizer.normalize(username, Normalizer.Form.NFKD);
+        var folded = COMBINING_MARKS.matcher(decomposed).replaceAll("").toLowerCase(Locale.ROOT);
+
+        var key = new StringBuilder(folded.length());
+        for (int i = 0; i < folded.length(); i++) {
+            var c = folded.charAt(i);
+            var expansion = EXPANSIONS.get(c);
+            if (expansion != null) {
+                key.append(expansion);
+            } else {
+                key.append(c);
+            }
+        }
+        return key.toString();
+    }
+
+    static boolean isAscii(String key) {
+        return key.chars().allMatch(c -> c < 0x80);
+    }
+
+    private record Filter(BloomFilter bloomFilter, long scanStartedAt) {
+    }
+}
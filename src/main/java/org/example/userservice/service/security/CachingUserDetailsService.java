@@ -0,0 +1,121 @@
+package org.example.userservice.service.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import lombok.extern.log4j.Log4j2;
+import org.example.userservice.model.security.UserDetailsImpl;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Primary;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.stereotype.Service;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounded, TTL-based cache in front of {@link UserDetailsServiceImpl}.
+ * Unknown usernames are cached as well (for a shorter time), writes go through this service and invalidate the entry.
+ */
+@Service
+@Primary
+@Log4j2
+public class CachingUserDetailsService implements UserDetailsService {
+
+    private final UserDetailsServiceImpl userDetailsService;
+
+    private final Cache<String, Optional<UserDetails>> cache;
+
+    public CachingUserDetailsService(UserDetailsServiceImpl userDetailsService,
+                                     @Value("${security.user-details-cache.maximum-size:10000}") long maximumSize,
+                                     @Value("${security.user-details-cache.ttl:300}") long ttlInSeconds,
+                                     @Value("${security.user-details-cache.negative-ttl:30}") long negativeTtlInSeconds) {
+
+        this.userDetailsService = userDetailsService;
+
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfter(new LookupExpiry(
+                        TimeUnit.SECONDS.toNanos(ttlInSeconds),
+                        TimeUnit.SECONDS.toNanos(negativeTtlInSeconds)))
+                .recordStats()
+                .build();
+    }
+
+    @Override
+    public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
+        return cache.get(username, this::load)
+                .orElseThrow(() -> new UsernameNotFoundException("Invalid username - " + username));
+    }
+
+    /**
+     * Token version of the cached user, 0 for an unknown one.
+     * Changes through other instances are seen once the entry expires.
+     */
+    public int getTokenVersion(String username) {
+        return cache.get(username, this::load)
+                .filter(UserDetailsImpl.class::isInstance)
+                .map(userDetails -> ((UserDetailsImpl) userDetails).getTokenVersion())
+                .orElse(0);
+    }
+
+    // Saving an inactive user and deactivating one increment its token version as well
+    public UserDetailsImpl save(UserDetailsImpl userDetails) {
+        var userDetailsSaved = userDetailsService.save(userDetails);
+        evict(userDetailsSaved.getUsername());
+        return userDetailsSaved;
+    }
+
+    public void deactivate(String username) {
+        userDetailsService.deactivate(username);
+        evict(username);
+    }
+
+    public int incrementTokenVersion(String username) {
+        var version = userDetailsService.incrementTokenVersion(username);
+        evict(username);
+        return version;
+    }
+
+    public void evict(String username) {
+        cache.invalidate(username);
+    }
+
+    public CacheStats getStats() {
+        return cache.stats();
+    }
+
+    public Cache<String, Optional<UserDetails>> getCache() {
+        return cache;
+    }
+
+    private Optional<UserDetails> load(String username) {
+        try {
+            return Optional.of(userDetailsService.loadUserByUsername(username));
+        } catch (UsernameNotFoundException e) {
+            log.debug("Caching negative lookup for username '{}'", username);
+            return Optional.empty();
+        }
+    }
+
+    private record LookupExpiry(long ttlInNanos, long negativeTtlInNanos) implements Expiry<String, Optional<UserDetails>> {
+
+        @Override
+        public long expireAfterCreate(String username, Optional<UserDetails> userDetails, long currentTime) {
+            return userDetails.isPresent() ? ttlInNanos : negativeTtlInNanos;
+        }
+
+        @Override
+        public long expireAfterUpdate(String username, Optional<UserDetails> userDetails, long currentTime, long currentDuration) {
+            return expireAfterCreate(username, userDetails, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String username, Optional<UserDetails> userDetails, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
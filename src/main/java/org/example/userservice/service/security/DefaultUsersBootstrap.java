@@ -0,0 +1,75 @@
+package org.example.userservice.service.security;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.example.userservice.model.security.Role;
+import org.example.userservice.model.security.UserDetailsImpl;
+import org.example.userservice.repository.security.UserDetailsRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+
+/**
+ * Creates the default admin-user if it is missing.
+ * It is saved through {@link CachingUserDetailsService}, so a lookup cached as unknown before does not outlive it.
+ */
+@Component
+@RequiredArgsConstructor
+@Log4j2
+public class DefaultUsersBootstrap {
+
+    private final CachingUserDetailsService userDetailsService;
+    private final UserDetailsRepository userDetailsRepository;
+    private final PasswordEncoder passwordEncoder;
+
+    @Value("${security.default-users.admin.username}")
+    private String defaultUserAdminUsername;
+
+    @Value("${security.default-users.admin.password}")
+    private String defaultUserAdminPassword;
+
+    // The lookup and the password hash run off the startup path, after the context is ready
+    @Value("${security.default-users.async-bootstrap:true}")
+    private boolean asyncBootstrap;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void bootstrapDefaultUsers() {
+        if (asyncBootstrap) {
+            new SimpleAsyncTaskExecutor("default-users-bootstrap-").execute(this::tryCheckOrCreateDefaultUsers);
+        } else {
+            checkOrCreateDefaultUsers();
+        }
+    }
+
+    private void tryCheckOrCreateDefaultUsers() {
+        try {
+            checkOrCreateDefaultUsers();
+        } catch (RuntimeException e) {
+            log.error("Failed to check or create the default users - {}", e.getMessage(), e);
+        }
+    }
+
+    protected void checkOrCreateDefaultUsers() {
+
+        // Presence check
+        var defaultAdminOpt = userDetailsRepository.findByUsername(defaultUserAdminUsername);
+
+        if (defaultAdminOpt.isEmpty()) {
+
+            log.warn("Default admin-user was not found, trying to create one.");
+
+            // Creating a user
+            var defaultAdmin = new UserDetailsImpl();
+            defaultAdmin.setUsername(defaultUserAdminUsername);
+            defaultAdmin.setPassword(passwordEncoder.encode(defaultUserAdminPassword));
+            defaultAdmin.setRole(Role.ADMIN);
+            defaultAdmin.setIsActive(true);
+            userDetailsService.save(defaultAdmin);
+
+            log.info("Default admin-user was created");
+        }
+    }
+}
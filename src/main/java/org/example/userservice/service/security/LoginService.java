@@ -0,0 +1,93 @@
+package org.example.userservice.service.security;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.security.authentication.AccountStatusUserDetailsChecker;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+
+@Service
+@Log4j2
+public class LoginService {
+
+    private final UserDetailsService userDetailsService;
+    private final PasswordEncoder passwordEncoder;
+    private final PasswordHashingExecutor passwordHashingExecutor;
+
+    private final Timer hashingTimer;
+
+    private final AccountStatusUserDetailsChecker accountStatusChecker = new AccountStatusUserDetailsChecker();
+
+    private volatile String dummyPasswordHash;
+
+    public LoginService(UserDetailsService userDetailsService,
+                        PasswordEncoder passwordEncoder,
+                        PasswordHashingExecutor passwordHashingExecutor,
+                        MeterRegistry meterRegistry) {
+
+        this.userDetailsService = userDetailsService;
+        this.passwordEncoder = passwordEncoder;
+        this.passwordHashingExecutor = passwordHashingExecutor;
+
+        this.hashingTimer = Timer.builder("security.login.hashing")
+                .description("Password verification time on the password hashing executor")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    /**
+     * Loads the user once and verifies the password on the password hashing executor.
+     *
+     * @throws RejectedExecutionException if the password hashing queue is full
+     */
+    public CompletableFuture<UserDetails> authenticate(String username, String password) throws RejectedExecutionException {
+
+        if (password == null) {
+            throw new BadCredentialsException("Bad credentials");
+        }
+
+        UserDetails user;
+        try {
+            user = userDetailsService.loadUserByUsername(username);
+        } catch (UsernameNotFoundException e) {
+            user = null;
+        }
+
+        if (user != null) {
+            accountStatusChecker.check(user);
+        }
+
+        var userFound = user;
+
+        return passwordHashingExecutor.submit(() -> {
+
+            if (userFound == null) {
+                // Same amount of work as for an existing user, so that the response time does not reveal the username
+                hashingTimer.record(() -> passwordEncoder.matches(password, getDummyPasswordHash()));
+                throw new BadCredentialsException("Bad credentials");
+            }
+
+            var matches = hashingTimer.record(() -> passwordEncoder.matches(password, userFound.getPassword()));
+            if (!matches) {
+                throw new BadCredentialsException("Bad credentials");
+            }
+
+            return userFound;
+        });
+    }
+
+    private String getDummyPasswordHash() {
+        if (dummyPasswordHash == null) {
+            dummyPasswordHash = passwordEncoder.encode("dummy-password");
+        }
+        return dummyPasswordHash;
+    }
+}
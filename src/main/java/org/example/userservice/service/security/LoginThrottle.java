@@ -0,0 +1,225 @@
+package org.example.userservice.service.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.log4j.Log4j2;
+import org.example.userservice.util.TokenBucket;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-memory login rate limiting per username and per client IP.
+ * Every key has a lock-free {@link TokenBucket}, repeated failures lock the key out for an exponentially growing time.
+ * Failures are counted within a window that restarts after a quiet period, so the state of a shared IP ages out.
+ * Buckets are kept in bounded caches and evicted once idle.
+ */
+@Service
+@Log4j2
+public class LoginThrottle {
+
+    @Value("${security.login.throttle.username.capacity:10}")
+    private int usernameCapacity;
+
+    @Value("${security.login.throttle.username.refill-per-minute:10}")
+    private int usernameRefillPerMinute;
+
+    @Value("${security.login.throttle.ip.capacity:50}")
+    private int ipCapacity;
+
+    @Value("${security.login.throttle.ip.refill-per-minute:60}")
+    private int ipRefillPerMinute;
+
+    @Value("${security.login.throttle.lockout.threshold:5}")
+    private int lockoutThreshold;
+
+    @Value("${security.login.throttle.lockout.base:1}")
+    private long lockoutBaseInSeconds;
+
+    @Value("${security.login.throttle.lockout.max:900}")
+    private long lockoutMaxInSeconds;
+
+    @Value("${security.login.throttle.lockout.failure-window:900}")
+    private long failureWindowInSeconds;
+
+    @Value("${security.login.throttle.maximum-size:100000}")
+    private long maximumSize;
+
+    @Value("${security.login.throttle.idle:30}")
+    private long idleInMinutes;
+
+    private Cache<String, Bucket> usernameBuckets;
+    private Cache<String, Bucket> ipBuckets;
+
+    private final LongAdder allowed = new LongAdder();
+    private final LongAdder rejectedByUsername = new LongAdder();
+    private final LongAdder rejectedByIp = new LongAdder();
+    private final LongAdder rejectedByLockout = new LongAdder();
+    private final LongAdder lockouts = new LongAdder();
+
+    @PostConstruct
+    private void init() {
+        usernameBuckets = newBucketCache();
+        ipBuckets = newBucketCache();
+    }
+
+    /**
+     * Takes a token from both the username and the client IP buckets, a token is taken only if both have one.
+     *
+     * @return {@link Duration#ZERO} if the attempt is allowed, otherwise the time to wait before retrying
+     */
+    public Duration tryAcquire(String username, String clientIp) {
+
+        var now = System.nanoTime();
+        var usernameBucket = usernameBuckets.get(usernameKey(username), key -> new Bucket(usernameCapacity, usernameRefillPerMinute, now));
+        var ipBucket = ipBuckets.get(ipKey(clientIp), key -> new Bucket(ipCapacity, ipRefillPerMinute, now));
+
+        var lockedFor = Math.max(usernameBucket.lockedFor(now), ipBucket.lockedFor(now));
+        if (lockedFor > 0) {
+            rejectedByLockout.increment();
+            return Duration.ofNanos(lockedFor);
+        }
+
+        // Attempts against a throttled username must not drain the bucket of an IP shared by other users
+        var waitFor = ipBucket.tokens.waitFor(1, now);
+        if (waitFor > 0) {
+            rejectedByIp.increment();
+            return Duration.ofNanos(waitFor);
+        }
+
+        waitFor = usernameBucket.tokens.waitFor(1, now);
+        if (waitFor > 0) {
+            rejectedByUsername.increment();
+            return Duration.ofNanos(waitFor);
+        }
+
+        waitFor = ipBucket.tokens.tryAcquire(1, now);
+        if (waitFor > 0) {
+            rejectedByIp.increment();
+            return Duration.ofNanos(waitFor);
+        }
+
+        waitFor = usernameBucket.tokens.tryAcquire(1, now);
+        if (waitFor > 0) {
+            rejectedByUsername.increment();
+            return Duration.ofNanos(waitFor);
+        }
+
+        allowed.increment();
+        return Duration.ZERO;
+    }
+
+    public void onSuccess(String username) {
+        var usernameBucket = usernameBuckets.getIfPresent(usernameKey(username));
+        if (usernameBucket != null) {
+            usernameBucket.resetFailures();
+        }
+    }
+
+    public void onFailure(String username, String clientIp) {
+        var now = System.nanoTime();
+        registerFailure(usernameBuckets.getIfPresent(usernameKey(username)), now);
+        registerFailure(ipBuckets.getIfPresent(ipKey(clientIp)), now);
+    }
+
+    public long getAllowedCount() {
+        return allowed.sum();
+    }
+
+    public long getRejectedByUsernameCount() {
+        return rejectedByUsername.sum();
+    }
+
+    public long getRejectedByIpCount() {
+        return rejectedByIp.sum();
+    }
+
+    public long getRejectedByLockoutCount() {
+        return rejectedByLockout.sum();
+    }
+
+    public long getLockoutCount() {
+        return lockouts.sum();
+    }
+
+    public long getTrackedUsernames() {
+        return usernameBuckets.estimatedSize();
+    }
+
+    public long getTrackedIps() {
+        return ipBuckets.estimatedSize();
+    }
+
+    private void registerFailure(Bucket bucket, long now) {
+        var window = TimeUnit.SECONDS.toNanos(failureWindowInSeconds);
+        if (bucket != null && bucket.registerFailure(lockoutThreshold, lockoutBaseInSeconds, lockoutMaxInSeconds, window, now)) {
+            lockouts.increment();
+        }
+    }
+
+    private Cache<String, Bucket> newBucketCache() {
+        return Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterAccess(idleInMinutes, TimeUnit.MINUTES)
+                .build();
+    }
+
+    private static String usernameKey(String username) {
+        return username == null ? "" : username.toLowerCase(Locale.ROOT);
+    }
+
+    private static String ipKey(String clientIp) {
+        return clientIp == null ? "" : clientIp;
+    }
+
+    private record Failures(int count, long lastFailure, long lockedUntil) {
+    }
+
+    /**
+     * The tokens of a key together with its failure and lockout state.
+     */
+    private static final class Bucket {
+
+        private final TokenBucket tokens;
+        private final AtomicReference<Failures> failures;
+
+        private Bucket(int capacity, int refillPerMinute, long now) {
+            this.tokens = new TokenBucket(capacity, refillPerMinute, now);
+            this.failures = new AtomicReference<>(new Failures(0, now, now));
+        }
+
+        private long lockedFor(long now) {
+            return Math.max(failures.get().lockedUntil() - now, 0);
+        }
+
+        /**
+         * @return true if the failure started a lockout
+         */
+        private boolean registerFailure(int threshold, long baseInSeconds, long maxInSeconds, long window, long now) {
+            while (true) {
+                var current = failures.get();
+                // A failure after a quiet period starts the count over instead of escalating the lockout
+                var count = now - current.lastFailure() >= window ? 1 : current.count() + 1;
+                var lockedUntil = current.lockedUntil();
+                if (count >= threshold) {
+                    var exponent = Math.min(count - threshold, 30);
+                    var lockoutInSeconds = Math.min(baseInSeconds << exponent, maxInSeconds);
+                    lockedUntil = now + TimeUnit.SECONDS.toNanos(lockoutInSeconds);
+                }
+                if (failures.compareAndSet(current, new Failures(count, now, lockedUntil))) {
+                    return count >= threshold;
+                }
+            }
+        }
+
+        private void resetFailures() {
+            failures.updateAndGet(current -> new Failures(0, current.lastFailure(), current.lockedUntil()));
+        }
+    }
+}
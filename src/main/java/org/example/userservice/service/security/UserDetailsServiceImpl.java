@@ -1,61 +1,69 @@
 package org.example.userservice.service.security;
 
-import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
-import lombok.extern.log4j.Log4j2;
-import org.example.userservice.model.security.Role;
 import org.example.userservice.model.security.UserDetailsImpl;
 import org.example.userservice.repository.security.UserDetailsRepository;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 @Service
 @RequiredArgsConstructor
-@Log4j2
 public class UserDetailsServiceImpl implements UserDetailsService {
 
     private final UserDetailsRepository userDetailsRepository;
-    private final PasswordEncoder passwordEncoder;
-
-    @Value("${security.default-users.admin.username}")
-    private String defaultUserAdminUsername;
-
-    @Value("${security.default-users.admin.password}")
-    private String defaultUserAdminPassword;
 
+    // Not read-only, so that it is routed to the primary and a lagging replica never shows a revoked user as it was.
+    // Cached in CachingUserDetailsService, which evicts the entry on every change of the user.
     @Override
+    @Transactional
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
-        return userDetailsRepository.findByUsername(username)
+        return userDetailsRepository.findCurrentByUsername(username)
                 .orElseThrow(() -> new UsernameNotFoundException("Invalid username - " + username));
     }
 
-    @PostConstruct
-    private void init() {
-        checkOrCreateDefaultUsers();
-    }
-
-    protected void checkOrCreateDefaultUsers() {
+    // An existing user is changed on the locked row, a cached or detached copy could carry an older token version
+    @Transactional
+    public UserDetailsImpl save(UserDetailsImpl userDetails) {
 
-        // Presence check
-        var defaultAdminOpt = userDetailsRepository.findByUsername(defaultUserAdminUsername);
+        if (userDetails.getId() == null) {
+            return userDetailsRepository.save(userDetails);
+        }
 
-        if (defaultAdminOpt.isEmpty()) {
+        var userDetailsStored = findForUpdate(userDetails.getUsername());
+        userDetailsStored.setPassword(userDetails.getPassword());
+        userDetailsStored.setRole(userDetails.getRole());
+        userDetailsStored.setIsActive(userDetails.getIsActive());
+        if (Boolean.FALSE.equals(userDetails.getIsActive())) {
+            userDetailsStored.incrementTokenVersion();
+        }
+        return userDetailsStored;
+    }
 
-            log.warn("Default admin-user was not found, trying to create one.");
+    @Transactional
+    public void deactivate(String username) {
+        var userDetails = findForUpdate(username);
+        userDetails.setIsActive(false);
+        userDetails.incrementTokenVersion();
+    }
 
-            // Creating a user
-            var defaultAdmin = new UserDetailsImpl();
-            defaultAdmin.setUsername(defaultUserAdminUsername);
-            defaultAdmin.setPassword(passwordEncoder.encode(defaultUserAdminPassword));
-            defaultAdmin.setRole(Role.ADMIN);
-            defaultAdmin.setIsActive(true);
-            userDetailsRepository.save(defaultAdmin);
+    /**
+     * @return the new token version, or 0 if the user does not exist
+     */
+    @Transactional
+    public int incrementTokenVersion(String username) {
+        return userDetailsRepository.findForUpdateByUsername(username)
+                .map(userDetails -> {
+                    userDetails.incrementTokenVersion();
+                    return userDetails.getTokenVersion();
+                })
+                .orElse(0);
+    }
 
-            log.info("Default admin-user was created");
-        }
+    private UserDetailsImpl findForUpdate(String username) {
+        return userDetailsRepository.findForUpdateByUsername(username)
+                .orElseThrow(() -> new UsernameNotFoundException("Invalid username - " + username));
     }
 }
@@ -0,0 +1,21 @@
+package org.example.userservice.service.security.jwt;
+
+import lombok.Getter;
+import org.springframework.http.HttpStatus;
+
+@Getter
+public class InvalidTokenException extends RuntimeException {
+
+    private final Reason reason;
+
+    public InvalidTokenException(Reason reason, String message) {
+        super(HttpStatus.UNAUTHORIZED + ". " + message);
+        this.reason = reason;
+    }
+
+    public enum Reason {
+        EXPIRED,
+        INVALID,
+        REVOKED
+    }
+}
@@ -0,0 +1,178 @@
+package org.example.userservice.service.security.jwt;
+
+import io.jsonwebtoken.Header;
+import io.jsonwebtoken.JwtBuilder;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.ProtectedHeader;
+import io.jsonwebtoken.security.Jwks;
+import io.jsonwebtoken.security.Keys;
+import io.jsonwebtoken.security.SignatureAlgorithm;
+import io.jsonwebtoken.security.SignatureException;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.SecretKey;
+import java.security.GeneralSecurityException;
+import java.security.Key;
+import java.security.KeyFactory;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.security.spec.X509EncodedKeySpec;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Keys the tokens are signed and verified with.
+ * <p>
+ * HS256 keeps signing with the shared {@code security.jwt.secretKey}. With RS256 or EdDSA the tokens carry
+ * the 'kid' of the active key and the public keys are published as a JWKS, so the other services verify them locally.
+ */
+@Component
+@RequiredArgsConstructor
+@Log4j2
+public class JwtSigningKeys {
+
+    public enum Algorithm {
+        HS256, RS256, EdDSA
+    }
+
+    private final JwtSigningProperties properties;
+
+    @Value("${security.jwt.secretKey}")
+    private String secretKey;
+
+    private SecretKey hmacKey;
+    private String activeKid;
+    private PrivateKey activePrivateKey;
+    private Map<String, PublicKey> publicKeys = Collections.emptyMap();
+    private Map<String, ?> jwks = Map.of("keys", Collections.emptyList());
+
+    @PostConstruct
+    private void init() {
+
+        hmacKey = Keys.hmacShaKeyFor(Base64.getEncoder().encodeToString(secretKey.getBytes()).getBytes());
+
+        var algorithm = properties.getAlgorithm();
+        if (algorithm == Algorithm.HS256) {
+            return;
+        }
+
+        var privateKeys = new LinkedHashMap<String, PrivateKey>();
+        var keys = new LinkedHashMap<String, PublicKey>();
+
+        for (var key : properties.getKeys()) {
+            if (key.getKid() == null || key.getPublicKey() == null) {
+                throw new IllegalStateException("Every signing key needs 'kid' and 'public-key'");
+            }
+            keys.put(key.getKid(), parsePublicKey(key.getPublicKey(), algorithm));
+            if (key.getPrivateKey() != null) {
+                privateKeys.put(key.getKid(), parsePrivateKey(key.getPrivateKey(), algorithm));
+            }
+        }
+
+        if (keys.isEmpty()) {
+            // Fine for a single instance only, the tokens do not survive a restart
+            var kid = "ephemeral-" + UUID.randomUUID();
+            var keyPair = algorithm == Algorithm.RS256
+                    ? Jwts.SIG.RS256.keyPair().build()
+                    : Jwts.SIG.EdDSA.keyPair().build();
+            keys.put(kid, keyPair.getPublic());
+            privateKeys.put(kid, keyPair.getPrivate());
+            log.warn("No {} signing keys are configured, an ephemeral key '{}' was generated", algorithm, kid);
+        }
+
+        activeKid = properties.getActiveKid() != null || privateKeys.size() != 1
+                ? properties.getActiveKid()
+                : privateKeys.keySet().iterator().next();
+        activePrivateKey = privateKeys.get(activeKid);
+        if (activePrivateKey == null) {
+            throw new IllegalStateException("No private key for the active signing key '" + activeKid + "'");
+        }
+
+        publicKeys = Collections.unmodifiableMap(keys);
+
+        var jwkSet = Jwks.set();
+        keys.forEach((kid, publicKey) -> jwkSet.add(Jwks.builder()
+                .key(publicKey)
+                .id(kid)
+                .algorithm(algorithm.name())
+                .publicKeyUse("sig")
+                .build()));
+        jwks = jwkSet.build();
+
+        log.info("Tokens are signed with {} key '{}', {} key(s) published", algorithm, activeKid, keys.size());
+    }
+
+    public JwtBuilder sign(JwtBuilder builder) {
+        if (properties.getAlgorithm() == Algorithm.HS256) {
+            return builder.signWith(hmacKey);
+        }
+        return builder
+                .header().keyId(activeKid).and()
+                .signWith(activePrivateKey, signatureAlgorithm());
+    }
+
+    /**
+     * Key locator of the parser, jjwt itself rejects a key that does not fit the 'alg' header.
+     */
+    public Key locate(Header header) {
+
+        var kid = header instanceof ProtectedHeader protectedHeader ? protectedHeader.getKeyId() : null;
+
+        if (kid == null) {
+            if (properties.getAlgorithm() == Algorithm.HS256 || properties.isAcceptLegacyHmac()) {
+                return hmacKey;
+            }
+            throw new SignatureException("Token has no 'kid' header");
+        }
+
+        var publicKey = publicKeys.get(kid);
+        if (publicKey == null) {
+            throw new SignatureException("Unknown signing key '" + kid + "'");
+        }
+        return publicKey;
+    }
+
+    public Map<String, ?> getJwks() {
+        return jwks;
+    }
+
+    public String getActiveKid() {
+        return activeKid;
+    }
+
+    private SignatureAlgorithm signatureAlgorithm() {
+        return properties.getAlgorithm() == Algorithm.RS256 ? Jwts.SIG.RS256 : Jwts.SIG.EdDSA;
+    }
+
+    private static PublicKey parsePublicKey(String pem, Algorithm algorithm) {
+        try {
+            return keyFactory(algorithm).generatePublic(new X509EncodedKeySpec(decodePem(pem)));
+        } catch (GeneralSecurityException | IllegalArgumentException e) {
+            throw new IllegalStateException("Invalid " + algorithm + " public key", e);
+        }
+    }
+
+    private static PrivateKey parsePrivateKey(String pem, Algorithm algorithm) {
+        try {
+            return keyFactory(algorithm).generatePrivate(new PKCS8EncodedKeySpec(decodePem(pem)));
+        } catch (GeneralSecurityException | IllegalArgumentException e) {
+            throw new IllegalStateException("Invalid " + algorithm + " private key", e);
+        }
+    }
+
+    private static KeyFactory keyFactory(Algorithm algorithm) throws GeneralSecurityException {
+        return KeyFactory.getInstance(algorithm == Algorithm.RS256 ? "RSA" : "Ed25519");
+    }
+
+    private static byte[] decodePem(String pem) {
+        return Base64.getMimeDecoder().decode(pem.replaceAll("-----[A-Z ]+-----", ""));
+    }
+}
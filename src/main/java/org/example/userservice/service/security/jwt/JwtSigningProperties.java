@@ -0,0 +1,36 @@
+package org.example.userservice.service.security.jwt;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Rotation: add the new key to {@code keys} first (it is published in the JWKS right away), switch {@code active-kid}
+ * once the peers had time to refresh their JWKS, and drop the private key of the old one, keeping its public key
+ * until the last token signed with it has expired.
+ */
+@ConfigurationProperties("security.jwt.signing")
+@Getter @Setter
+public class JwtSigningProperties {
+
+    private JwtSigningKeys.Algorithm algorithm = JwtSigningKeys.Algorithm.HS256;
+
+    private String activeKid;
+
+    private List<Key> keys = new ArrayList<>();
+
+    // Tokens without a 'kid' header are verified with 'security.jwt.secretKey', e.g. the ones issued before the switch
+    private boolean acceptLegacyHmac = true;
+
+    @Getter @Setter
+    public static class Key {
+        private String kid;
+        // PEM, PKCS#8, may be omitted for a retired key
+        private String privateKey;
+        // PEM, X.509
+        private String publicKey;
+    }
+}
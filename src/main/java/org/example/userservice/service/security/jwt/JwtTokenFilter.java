@@ -1,42 +1,99 @@
 package org.example.userservice.service.security.jwt;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.ServletRequest;
 import jakarta.servlet.ServletResponse;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
-import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
+import org.springframework.security.core.AuthenticationException;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 import org.springframework.web.filter.GenericFilterBean;
 
 import java.io.IOException;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 @Service
-@RequiredArgsConstructor
 public class JwtTokenFilter extends GenericFilterBean {
 
     private final JwtTokenProvider jwtTokenProvider;
 
+    // Meters are created once, so the hot path does not look them up in the registry
+    private final Timer authenticatedTimer;
+    private final Timer rejectedTimer;
+    private final Map<InvalidTokenException.Reason, Counter> rejectionCounters = new EnumMap<>(InvalidTokenException.Reason.class);
+    private final Counter unknownUserRejectionCounter;
+    private final Counter otherRejectionCounter;
+
+    public JwtTokenFilter(JwtTokenProvider jwtTokenProvider, MeterRegistry meterRegistry) {
+
+        this.jwtTokenProvider = jwtTokenProvider;
+
+        this.authenticatedTimer = verificationTimer(meterRegistry, "authenticated");
+        this.rejectedTimer = verificationTimer(meterRegistry, "rejected");
+
+        for (var reason : InvalidTokenException.Reason.values()) {
+            rejectionCounters.put(reason, rejectionCounter(meterRegistry, reason.name().toLowerCase(Locale.ROOT)));
+        }
+        this.unknownUserRejectionCounter = rejectionCounter(meterRegistry, "unknown_user");
+        this.otherRejectionCounter = rejectionCounter(meterRegistry, "other");
+    }
+
     @Override
     public void doFilter(ServletRequest servletRequest, ServletResponse servletResponse, FilterChain filterChain) throws IOException, ServletException {
 
         String token = jwtTokenProvider.resolveToken((HttpServletRequest) servletRequest);
 
-        try {
-            if (token != null && jwtTokenProvider.validateToken(token)) {
-                var authentication = jwtTokenProvider.getAuthentication(token);
+        if (token != null) {
+            var startTime = System.nanoTime();
+            try {
+                var claims = jwtTokenProvider.verifyToken(token);
+                var authentication = jwtTokenProvider.getAuthentication(claims);
                 if (authentication != null) {
                     SecurityContextHolder.getContext().setAuthentication(authentication);
                 }
+                authenticatedTimer.record(System.nanoTime() - startTime, TimeUnit.NANOSECONDS);
+            } catch (RuntimeException e) {
+                rejectedTimer.record(System.nanoTime() - startTime, TimeUnit.NANOSECONDS);
+                countRejection(e);
+                SecurityContextHolder.clearContext();
+                ((HttpServletResponse) servletResponse).sendError(HttpStatus.UNAUTHORIZED.value());
             }
-        } catch (RuntimeException e) {
-            SecurityContextHolder.clearContext();
-            ((HttpServletResponse) servletResponse).sendError(HttpStatus.UNAUTHORIZED.value());
         }
 
         filterChain.doFilter(servletRequest, servletResponse);
     }
+
+    private void countRejection(RuntimeException e) {
+        if (e instanceof InvalidTokenException invalidTokenException) {
+            rejectionCounters.get(invalidTokenException.getReason()).increment();
+        } else if (e instanceof AuthenticationException) {
+            unknownUserRejectionCounter.increment();
+        } else {
+            otherRejectionCounter.increment();
+        }
+    }
+
+    private static Timer verificationTimer(MeterRegistry meterRegistry, String outcome) {
+        return Timer.builder("security.jwt.verification")
+                .description("Token parsing, verification and authentication time in the JWT filter")
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    private static Counter rejectionCounter(MeterRegistry meterRegistry, String reason) {
+        return Counter.builder("security.jwt.rejections")
+                .description("Tokens rejected by the JWT filter")
+                .tag("reason", reason)
+                .register(meterRegistry);
+    }
 }
@@ -3,74 +3,94 @@ package org.example.userservice.service.security.jwt;
 import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.ExpiredJwtException;
 import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
-import io.jsonwebtoken.security.Keys;
 import jakarta.annotation.PostConstruct;
 import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.log4j.Log4j2;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.http.HttpStatus;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.AuthenticationException;
 import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.stereotype.Service;
 
-import javax.crypto.SecretKey;
-import java.util.Base64;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
+import java.util.Optional;
+import java.util.UUID;
 
 @Service
 @RequiredArgsConstructor
 @Log4j2
 public class JwtTokenProvider {
 
+    public static final String AUTHORITIES_CLAIM = "authorities";
+    public static final String TOKEN_VERSION_CLAIM = "ver";
+
     @Value("${security.jwt.requestHeader}")
     private String requestHeader;
 
-    @Value("${security.jwt.secretKey}")
-    private String secretKey;
-
     @Value("${security.jwt.validity}")
     private Long validityInSeconds;
 
+    // Build the authentication out of the verified claims only, without loading the user
+    @Value("${security.jwt.claims-authentication:false}")
+    private boolean claimsAuthentication;
+
     private final UserDetailsService userDetailsService;
+    private final TokenVersionRegistry tokenVersionRegistry;
+    private final VerifiedTokenCache verifiedTokenCache;
+    private final JwtSigningKeys jwtSigningKeys;
+    private final TokenRevocationService tokenRevocationService;
+
+    private JwtParser parser;
 
     @PostConstruct
     private void init() {
-        secretKey = Base64.getEncoder().encodeToString(secretKey.getBytes());
+        parser = Jwts.parser().keyLocator(jwtSigningKeys::locate).build();
     }
 
     public String createToken(String username, Collection<? extends GrantedAuthority> authorities) {
 
         var claims = Jwts.claims()
+                .id(UUID.randomUUID().toString())
                 .subject(username)
-                .add("authorities", authorities)
+                .add(AUTHORITIES_CLAIM, authorities.stream().map(GrantedAuthority::getAuthority).toList())
+                .add(TOKEN_VERSION_CLAIM, tokenVersionRegistry.getVersion(username))
                 .build();
 
         var now = new Date();
         var validity = new Date(now.getTime() + validityInSeconds * 1_000);
 
-        return Jwts.builder()
+        var builder = Jwts.builder()
                 .claims(claims)
-                .signWith(getSigningKey())
                 .issuedAt(now)
-                .expiration(validity)
-                .compact();
+                .expiration(validity);
+
+        return jwtSigningKeys.sign(builder).compact();
     }
 
     public boolean validateToken(String token) {
+        var claims = verifyToken(token);
+        return claims.getExpiration().after(new Date()) && !tokenRevocationService.isRevoked(claims);
+    }
+
+    /**
+     * Parses and verifies the token once, repeated tokens are served from the verified-token cache until they expire.
+     */
+    public Claims verifyToken(String token) {
         try {
-            var claims = getClaims(token);
-            return claims.getExpiration().after(new Date());
+            return verifiedTokenCache.get(token, this::getClaims);
         } catch (ExpiredJwtException e) {
             log.info("Token expired");
-            throw new RuntimeException(HttpStatus.UNAUTHORIZED + ". " + e.getMessage());
+            throw new InvalidTokenException(InvalidTokenException.Reason.EXPIRED, e.getMessage());
         } catch (JwtException | AuthenticationException | IllegalArgumentException e) {
-            throw new RuntimeException(HttpStatus.UNAUTHORIZED + ". " + e.getMessage());
+            throw new InvalidTokenException(InvalidTokenException.Reason.INVALID, e.getMessage());
         }
     }
 
@@ -79,17 +99,35 @@ public class JwtTokenProvider {
     }
 
     public Authentication getAuthentication(String token) {
-        var username = getClaims(token).getSubject();
-        var user = userDetailsService.loadUserByUsername(username);
+        return getAuthentication(verifyToken(token));
+    }
+
+    public Authentication getAuthentication(Claims claims) {
+        if (tokenRevocationService.isRevoked(claims)) {
+            throw new InvalidTokenException(InvalidTokenException.Reason.REVOKED, "Token was revoked");
+        }
+        if (claimsAuthentication) {
+            return getAuthenticationFromClaims(claims);
+        }
+        var user = userDetailsService.loadUserByUsername(claims.getSubject());
         return new UsernamePasswordAuthenticationToken(user.getUsername(), "", user.getAuthorities());
     }
 
-    private Claims getClaims(String token) {
-        var parser = io.jsonwebtoken.Jwts.parser().verifyWith(getSigningKey()).build();
-        return parser.parseSignedClaims(token).getPayload();
+    private Authentication getAuthenticationFromClaims(Claims claims) {
+
+        var username = claims.getSubject();
+
+        Collection<?> authorityNames = Optional.<Collection<?>>ofNullable(claims.get(AUTHORITIES_CLAIM, Collection.class))
+                .orElse(Collections.emptyList());
+
+        var authorities = authorityNames.stream()
+                .map(authority -> new SimpleGrantedAuthority(String.valueOf(authority)))
+                .toList();
+
+        return new UsernamePasswordAuthenticationToken(username, "", authorities);
     }
 
-    private SecretKey getSigningKey() {
-        return Keys.hmacShaKeyFor(secretKey.getBytes());
+    private Claims getClaims(String token) {
+        return parser.parseSignedClaims(token).getPayload();
     }
 }
@@ -0,0 +1,123 @@
+package org.example.userservice.service.security.jwt;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.example.userservice.model.security.RefreshToken;
+import org.example.userservice.repository.security.RefreshTokenRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.authentication.AccountStatusUserDetailsChecker;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.UUID;
+
+/**
+ * Opaque rotating refresh tokens, a new access token is issued without verifying the password again.
+ */
+@Service
+@RequiredArgsConstructor
+@Log4j2
+public class RefreshTokenService {
+
+    private final RefreshTokenRepository refreshTokenRepository;
+    private final UserDetailsService userDetailsService;
+
+    private final SecureRandom secureRandom = new SecureRandom();
+    private final AccountStatusUserDetailsChecker accountStatusChecker = new AccountStatusUserDetailsChecker();
+
+    @Value("${security.jwt.refresh.validity:1209600}") // 14 days
+    private long validityInSeconds;
+
+    /**
+     * Starts a new token family, e.g. on login.
+     */
+    @Transactional
+    public String issue(String username) {
+        return issue(username, UUID.randomUUID().toString());
+    }
+
+    /**
+     * Uses the refresh token up and returns the user together with the next refresh token of the same family.
+     * A token that was already used means that it has leaked, so the whole family is revoked.
+     */
+    @Transactional(noRollbackFor = InvalidTokenException.class)
+    public Rotation rotate(String refreshToken) {
+
+        if (refreshToken == null || refreshToken.isBlank()) {
+            throw new InvalidTokenException(InvalidTokenException.Reason.INVALID, "Refresh token is missing");
+        }
+
+        var storedToken = refreshTokenRepository.findByTokenHash(hash(refreshToken))
+                .orElseThrow(() -> new InvalidTokenException(InvalidTokenException.Reason.INVALID, "Unknown refresh token"));
+
+        if (storedToken.getExpiresAt().isBefore(Instant.now())) {
+            throw new InvalidTokenException(InvalidTokenException.Reason.EXPIRED, "Refresh token expired");
+        }
+
+        if (storedToken.isUsed() || refreshTokenRepository.markUsed(storedToken.getId()) == 0) {
+            refreshTokenRepository.deleteByFamilyId(storedToken.getFamilyId());
+            log.warn("Refresh token of the user '{}' was reused, its family was revoked", storedToken.getUsername());
+            throw new InvalidTokenException(InvalidTokenException.Reason.REVOKED, "Refresh token was already used");
+        }
+
+        // Deactivated users can not refresh, the password is not checked again
+        var user = userDetailsService.loadUserByUsername(storedToken.getUsername());
+        accountStatusChecker.check(user);
+
+        return new Rotation(user, issue(storedToken.getUsername(), storedToken.getFamilyId()));
+    }
+
+    @Transactional
+    public void revokeFamily(String refreshToken) {
+        refreshTokenRepository.findByTokenHash(hash(refreshToken))
+                .ifPresent(storedToken -> refreshTokenRepository.deleteByFamilyId(storedToken.getFamilyId()));
+    }
+
+    // Used tokens are kept until they expire, so that their reuse is still detected
+    @Scheduled(fixedDelayString = "${security.jwt.refresh.cleanup-interval:3600000}")
+    @Transactional
+    public void deleteExpired() {
+        var deleted = refreshTokenRepository.deleteExpired(Instant.now());
+        if (deleted > 0) {
+            log.info("{} expired refresh tokens were deleted", deleted);
+        }
+    }
+
+    private String issue(String username, String familyId) {
+
+        var bytes = new byte[32];
+        secureRandom.nextBytes(bytes);
+        var refreshToken = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+
+        refreshTokenRepository.save(new RefreshToken(
+                null,
+                hash(refreshToken),
+                familyId,
+                username,
+                Instant.now().plusSeconds(validityInSeconds),
+                false));
+
+        return refreshToken;
+    }
+
+    private static String hash(String refreshToken) {
+        try {
+            var digest = MessageDigest.getInstance("SHA-256").digest(refreshToken.getBytes(StandardCharsets.UTF_8));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public record Rotation(UserDetails user, String refreshToken) {
+    }
+}
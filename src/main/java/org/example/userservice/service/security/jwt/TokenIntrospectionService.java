@@ -0,0 +1,114 @@
+package org.example.userservice.service.security.jwt;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.annotation.Timed;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.example.userservice.api.security.TokenIntrospectionDto;
+import org.example.userservice.util.TokenBucket;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Introspects a burst of tokens in one call, every token goes through the same parser and verified-token cache
+ * as the tokens of the incoming requests.
+ * Every caller is rate-limited by the number of tokens it introspects.
+ */
+@Service
+@RequiredArgsConstructor
+@Log4j2
+public class TokenIntrospectionService {
+
+    private final JwtTokenProvider jwtTokenProvider;
+
+    @Value("${security.jwt.introspection.max-batch-size:100}")
+    private int maxBatchSize;
+
+    @Value("${security.jwt.introspection.rate-limit.capacity:1000}")
+    private int rateLimitCapacity;
+
+    @Value("${security.jwt.introspection.rate-limit.refill-per-minute:6000}")
+    private int rateLimitRefillPerMinute;
+
+    private Cache<String, TokenBucket> callerBuckets;
+
+    @PostConstruct
+    private void init() {
+        callerBuckets = Caffeine.newBuilder()
+                .maximumSize(10_000)
+                .expireAfterAccess(10, TimeUnit.MINUTES)
+                .build();
+    }
+
+    /**
+     * Takes a permit per token of the batch from the bucket of the caller.
+     *
+     * @return {@link Duration#ZERO} if the batch is allowed, otherwise the time to wait before retrying
+     */
+    public Duration tryAcquire(String caller, int tokenCount) {
+
+        var now = System.nanoTime();
+        var bucket = callerBuckets.get(caller, key -> new TokenBucket(rateLimitCapacity, rateLimitRefillPerMinute, now));
+
+        // Oversized batches are rejected by introspect anyway, they are charged as a full batch
+        var permits = Math.max(1, Math.min(Math.min(tokenCount, maxBatchSize), bucket.getCapacity()));
+
+        var waitFor = bucket.tryAcquire(permits, now);
+        return waitFor == 0 ? Duration.ZERO : Duration.ofNanos(waitFor);
+    }
+
+    @Timed(value = "security.jwt.introspection", histogram = true)
+    public List<TokenIntrospectionDto> introspect(List<String> tokens) {
+
+        if (tokens.size() > maxBatchSize) {
+            var errorMessage = "Batch contains " + tokens.size() + " tokens, the maximum is " + maxBatchSize;
+            log.warn(errorMessage);
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, errorMessage);
+        }
+
+        var results = new ArrayList<TokenIntrospectionDto>(tokens.size());
+        for (var token : tokens) {
+            results.add(introspect(token));
+        }
+        return results;
+    }
+
+    private TokenIntrospectionDto introspect(String token) {
+
+        if (token == null || token.isBlank()) {
+            return TokenIntrospectionDto.inactive();
+        }
+
+        try {
+            var claims = jwtTokenProvider.verifyToken(token);
+
+            // Same checks as for a request carrying the token, e.g. the revocation
+            var authentication = jwtTokenProvider.getAuthentication(claims);
+
+            var expiresIn = (claims.getExpiration().getTime() - System.currentTimeMillis()) / 1_000;
+            if (expiresIn <= 0) {
+                return TokenIntrospectionDto.inactive();
+            }
+
+            var authorities = authentication.getAuthorities().stream()
+                    .map(GrantedAuthority::getAuthority)
+                    .toList();
+
+            return new TokenIntrospectionDto(true, authentication.getName(), authorities, expiresIn);
+
+        } catch (InvalidTokenException | AuthenticationException e) {
+            return TokenIntrospectionDto.inactive();
+        }
+    }
+}
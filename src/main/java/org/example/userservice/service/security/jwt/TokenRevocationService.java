@@ -0,0 +1,129 @@
+package org.example.userservice.service.security.jwt;
+
+import io.jsonwebtoken.Claims;
+import lombok.extern.log4j.Log4j2;
+import org.example.userservice.util.BloomFilter;
+import org.example.userservice.util.ExpiryWheel;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Revocation of single tokens (by {@code jti}) and of every token of a user (by the token version in the database).
+ * Lookups go through a Bloom filter first, so a token that was never revoked is answered without touching the exact set.
+ * Revoked ids are kept only until the token itself expires.
+ * <p>
+ * Revoked ids live in the memory of the instance that revoked them and are not shared, so revoking a single token
+ * (a logout) is best-effort: other instances accept it until it expires. Revoking all the tokens of a user
+ * reaches every instance within the TTL of its user details cache.
+ */
+@Service
+@Log4j2
+public class TokenRevocationService {
+
+    private static final Duration TICK = Duration.ofSeconds(1);
+
+    private final TokenVersionRegistry tokenVersionRegistry;
+    private final long expectedRevocations;
+    private final double falsePositiveProbability;
+
+    // jti -> expiration in epoch millis
+    private final Map<String, Long> revoked = new ConcurrentHashMap<>();
+    private final ExpiryWheel<String> expiryWheel;
+    private final Object lock = new Object();
+
+    private volatile BloomFilter bloomFilter;
+    private long bloomFilterCapacity;
+    private long expiredSinceRebuild;
+
+    public TokenRevocationService(TokenVersionRegistry tokenVersionRegistry,
+                                  @Value("${security.jwt.revocation.expected-revocations:100000}") long expectedRevocations,
+                                  @Value("${security.jwt.revocation.false-positive-probability:0.001}") double falsePositiveProbability,
+                                  @Value("${security.jwt.revocation.wheel-slots:3600}") int wheelSlots) {
+
+        this.tokenVersionRegistry = tokenVersionRegistry;
+        this.expectedRevocations = expectedRevocations;
+        this.falsePositiveProbability = falsePositiveProbability;
+        this.expiryWheel = new ExpiryWheel<>(wheelSlots, TICK, System.currentTimeMillis());
+        rebuildBloomFilter();
+    }
+
+    /**
+     * True if the token was revoked on its own or was issued with an older token version than the current one of its user.
+     */
+    public boolean isRevoked(Claims claims) {
+
+        var version = claims.get(JwtTokenProvider.TOKEN_VERSION_CLAIM, Number.class);
+        if (version == null || tokenVersionRegistry.isOutdated(claims.getSubject(), version.intValue())) {
+            return true;
+        }
+
+        var id = claims.getId();
+        return id != null && !revoked.isEmpty() && bloomFilter.mightContain(id) && revoked.containsKey(id);
+    }
+
+    public void revoke(Claims claims) {
+
+        var id = claims.getId();
+        if (id == null) {
+            // Tokens without an id can only be revoked together with every other token of the user
+            revokeAll(claims.getSubject());
+            return;
+        }
+
+        var expiresAt = claims.getExpiration().getTime();
+        if (expiresAt <= System.currentTimeMillis()) {
+            return;
+        }
+
+        synchronized (lock) {
+            if (revoked.putIfAbsent(id, expiresAt) == null) {
+                bloomFilter.put(id);
+                expiryWheel.schedule(id, expiresAt);
+                rebuildBloomFilterIfSaturated();
+            }
+        }
+        log.info("Token '{}' of the user '{}' was revoked", id, claims.getSubject());
+    }
+
+    public void revokeAll(String username) {
+        tokenVersionRegistry.bump(username);
+        log.info("All tokens of the user '{}' were revoked", username);
+    }
+
+    public int getRevokedCount() {
+        return revoked.size();
+    }
+
+    @Scheduled(fixedRate = 1_000)
+    public void expire() {
+        synchronized (lock) {
+            var expired = expiryWheel.advance(System.currentTimeMillis());
+            if (expired.isEmpty()) {
+                return;
+            }
+            expired.forEach(revoked::remove);
+            expiredSinceRebuild += expired.size();
+            rebuildBloomFilterIfSaturated();
+        }
+    }
+
+    // A Bloom filter cannot forget, expired ids keep raising the false positive rate until it is rebuilt
+    private void rebuildBloomFilterIfSaturated() {
+        if (revoked.size() + expiredSinceRebuild > bloomFilterCapacity) {
+            rebuildBloomFilter();
+        }
+    }
+
+    private void rebuildBloomFilter() {
+        bloomFilterCapacity = Math.max(expectedRevocations, 2L * revoked.size());
+        var rebuilt = new BloomFilter(bloomFilterCapacity, falsePositiveProbability);
+        revoked.keySet().forEach(rebuilt::put);
+        bloomFilter = rebuilt;
+        expiredSinceRebuild = 0;
+    }
+}
@@ -0,0 +1,31 @@
+package org.example.userservice.service.security.jwt;
+
+import lombok.RequiredArgsConstructor;
+import org.example.userservice.service.security.CachingUserDetailsService;
+import org.springframework.stereotype.Service;
+
+/**
+ * Per-user token generations, stored in {@code users_security.token_version} and read through the cached user details,
+ * so checking a token costs no query. Tokens carry the generation they were issued with, bumping it invalidates
+ * every token issued before. A bump through another instance is seen there once its cache entry expires
+ * ({@code security.user-details-cache.ttl}).
+ */
+@Service
+@RequiredArgsConstructor
+public class TokenVersionRegistry {
+
+    private final CachingUserDetailsService userDetailsService;
+
+    public int getVersion(String username) {
+        return userDetailsService.getTokenVersion(username);
+    }
+
+    // A newer generation than the cached one was issued by an instance that has already seen the bump
+    public boolean isOutdated(String username, int version) {
+        return version < getVersion(username);
+    }
+
+    public int bump(String username) {
+        return userDetailsService.incrementTokenVersion(username);
+    }
+}
@@ -0,0 +1,42 @@
+package org.example.userservice.util;
+
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.sql.SQLException;
+import java.util.Locale;
+
+/**
+ * Tells a violated unique key apart from the other integrity violations (NOT NULL, too long values and so on).
+ */
+public final class ConstraintViolations {
+
+    private static final int MYSQL_DUPLICATE_ENTRY = 1062;
+    private static final String SQL_STATE_UNIQUE_VIOLATION = "23505";
+
+    private ConstraintViolations() {
+    }
+
+    public static boolean isUniqueViolation(DataIntegrityViolationException e) {
+        return e.getMostSpecificCause() instanceof SQLException sqlException
+                && (sqlException.getErrorCode() == MYSQL_DUPLICATE_ENTRY
+                || SQL_STATE_UNIQUE_VIOLATION.equals(sqlException.getSQLState()));
+    }
+
+    // MySQL reports the key qualified with its table, e.g. 'users.uk_users_username'
+    public static boolean isUniqueViolationOf(DataIntegrityViolationException e, String constraintName) {
+
+        if (!isUniqueViolation(e)) {
+            return false;
+        }
+
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConstraintViolationException violation && violation.getConstraintName() != null) {
+                var violated = violation.getConstraintName().toLowerCase(Locale.ROOT);
+                var expected = constraintName.toLowerCase(Locale.ROOT);
+                return violated.equals(expected) || violated.endsWith("." + expected);
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,84 @@
+package org.example.userservice.util;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Hashed timing wheel, items are handed back by {@link #advance(long)} once their deadline has passed.
+ * Scheduling and advancing cost O(1) per item regardless of how many items are pending.
+ * Not thread-safe, callers must guard it themselves.
+ */
+public class ExpiryWheel<T> {
+
+    private final long tickMillis;
+    private final List<List<Entry<T>>> slots;
+
+    private long currentTick;
+    private int size;
+
+    public ExpiryWheel(int slotCount, Duration tick, long nowMillis) {
+
+        if (slotCount <= 0 || tick.toMillis() <= 0) {
+            throw new IllegalArgumentException("Slot count and tick must be positive");
+        }
+
+        this.tickMillis = tick.toMillis();
+        this.slots = new ArrayList<>(slotCount);
+        for (int i = 0; i < slotCount; i++) {
+            slots.add(new ArrayList<>());
+        }
+        this.currentTick = nowMillis / tickMillis;
+    }
+
+    public void schedule(T item, long deadlineMillis) {
+        // Deadlines beyond one revolution stay in their slot until the wheel comes round to their tick
+        var tick = Math.max(-Math.floorDiv(-deadlineMillis, tickMillis), currentTick + 1);
+        slotOf(tick).add(new Entry<>(item, tick));
+        size++;
+    }
+
+    /**
+     * Moves the wheel up to the given time and returns the items whose deadline has passed.
+     */
+    public List<T> advance(long nowMillis) {
+
+        var targetTick = nowMillis / tickMillis;
+        if (targetTick <= currentTick) {
+            return List.of();
+        }
+
+        var expired = new ArrayList<T>();
+
+        // After a long pause a single revolution covers every slot
+        var ticks = Math.min(targetTick - currentTick, slots.size());
+        for (long i = 1; i <= ticks; i++) {
+            expire(slotOf(currentTick + i), targetTick, expired);
+        }
+        currentTick = targetTick;
+        size -= expired.size();
+
+        return expired;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private void expire(List<Entry<T>> slot, long targetTick, List<T> expired) {
+        slot.removeIf(entry -> {
+            if (entry.tick() <= targetTick) {
+                expired.add(entry.item());
+                return true;
+            }
+            return false;
+        });
+    }
+
+    private List<Entry<T>> slotOf(long tick) {
+        return slots.get((int) Math.floorMod(tick, (long) slots.size()));
+    }
+
+    private record Entry<T>(T item, long tick) {
+    }
+}
@@ -0,0 +1,78 @@
+package org.example.userservice.util;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Lock-free token bucket, refilled continuously at a fixed rate up to its capacity.
+ */
+public class TokenBucket {
+
+    private final int capacity;
+    private final double tokensPerNano;
+    private final AtomicReference<State> state;
+
+    public TokenBucket(int capacity, int refillPerMinute, long nowNanos) {
+
+        if (capacity <= 0 || refillPerMinute <= 0) {
+            throw new IllegalArgumentException("Capacity and refill rate must be positive");
+        }
+
+        this.capacity = capacity;
+        this.tokensPerNano = refillPerMinute / (double) TimeUnit.MINUTES.toNanos(1);
+        this.state = new AtomicReference<>(new State(capacity, nowNanos));
+    }
+
+    /**
+     * @return 0 if the permits were taken, otherwise nanoseconds until enough of them are available
+     */
+    public long tryAcquire(int permits, long nowNanos) {
+
+        checkPermits(permits);
+
+        while (true) {
+            var current = state.get();
+            var tokens = tokens(current, nowNanos);
+            if (tokens < permits) {
+                return waitFor(permits, tokens);
+            }
+            if (state.compareAndSet(current, new State(tokens - permits, nowNanos))) {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * Same as {@link #tryAcquire(int, long)}, but leaves the tokens in the bucket.
+     *
+     * @return 0 if the permits are available, otherwise nanoseconds until enough of them are available
+     */
+    public long waitFor(int permits, long nowNanos) {
+
+        checkPermits(permits);
+
+        var tokens = tokens(state.get(), nowNanos);
+        return tokens < permits ? waitFor(permits, tokens) : 0;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    private void checkPermits(int permits) {
+        if (permits <= 0 || permits > capacity) {
+            throw new IllegalArgumentException("Permits must be between 1 and " + capacity + ", but were " + permits);
+        }
+    }
+
+    private double tokens(State current, long nowNanos) {
+        return Math.min(capacity, current.tokens() + (nowNanos - current.lastRefill()) * tokensPerNano);
+    }
+
+    private long waitFor(int permits, double tokens) {
+        return (long) Math.ceil((permits - tokens) / tokensPerNano);
+    }
+
+    private record State(double tokens, long lastRefill) {
+    }
+}
@@ -0,0 +1,24 @@
+-- Schema as it was created by Hibernate before the migrations were introduced, nothing added since belongs here.
+-- Existing databases are baselined at this version ('spring.flyway.baseline-on-migrate'), so it only runs on empty ones.
+
+CREATE TABLE IF NOT EXISTS users
+(
+    id           BIGINT       NOT NULL AUTO_INCREMENT,
+    username     VARCHAR(255) NOT NULL,
+    password     VARCHAR(255) NOT NULL,
+    birth_date   DATE,
+    phone_number VARCHAR(255),
+    PRIMARY KEY (id),
+    CONSTRAINT uk_users_username UNIQUE (username)
+) ENGINE = InnoDB;
+
+CREATE TABLE IF NOT EXISTS users_security
+(
+    id        INT          NOT NULL AUTO_INCREMENT,
+    username  VARCHAR(255) NOT NULL,
+    password  VARCHAR(255) NOT NULL,
+    role      VARCHAR(255),
+    is_active BIT,
+    PRIMARY KEY (id),
+    CONSTRAINT uk_users_security_username UNIQUE (username)
+) ENGINE = InnoDB;
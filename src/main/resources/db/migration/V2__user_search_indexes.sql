@@ -0,0 +1,12 @@
+-- Indexes behind GET /api/v1/users/search.
+-- The username prefix uses the unique index on username, LIKE 'prefix%' is case-insensitive with the default
+-- utf8mb4_0900_ai_ci collation, so no LOWER() is needed around the column.
+
+-- Digits only, kept in sync by MySQL on every write, UserSpecifications.normalizePhoneNumber mirrors the expression
+ALTER TABLE users
+    ADD COLUMN phone_number_normalized VARCHAR(255)
+        GENERATED ALWAYS AS (
+            REPLACE(REPLACE(REPLACE(REPLACE(REPLACE(REPLACE(phone_number, ' ', ''), '-', ''), '(', ''), ')', ''), '.', ''), '+', '')
+        ) STORED,
+    ADD INDEX idx_users_phone_number_normalized (phone_number_normalized),
+    ADD INDEX idx_users_birth_date (birth_date);
@@ -0,0 +1,20 @@
+-- Databases created by Hibernate before the baseline have the unique key on 'users.username' under a generated name.
+-- It is renamed, so that a violation of it can be recognized by name (User.USERNAME_UNIQUE_KEY).
+
+SET @generated_name = (SELECT index_name
+                       FROM information_schema.statistics
+                       WHERE table_schema = DATABASE()
+                         AND table_name = 'users'
+                         AND column_name = 'username'
+                         AND non_unique = 0
+                         AND seq_in_index = 1
+                         AND index_name <> 'uk_users_username'
+                       LIMIT 1);
+
+SET @rename_statement = IF(@generated_name IS NULL,
+                           'DO 0',
+                           CONCAT('ALTER TABLE users RENAME INDEX `', @generated_name, '` TO uk_users_username'));
+
+PREPARE rename_statement FROM @rename_statement;
+EXECUTE rename_statement;
+DEALLOCATE PREPARE rename_statement;
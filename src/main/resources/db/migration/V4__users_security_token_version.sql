@@ -0,0 +1,5 @@
+-- Per-user token generation, tokens issued with a lower one are revoked (TokenVersionRegistry).
+-- Kept in the database, so that every instance and every restart sees the same generation.
+
+ALTER TABLE users_security
+    ADD COLUMN token_version INT NOT NULL DEFAULT 0;
@@ -0,0 +1,15 @@
+-- Pooled id generator of User (allocation size 50), MySQL has no sequences.
+-- Databases populated under AUTO_INCREMENT already hold ids, so the sequence is moved past them.
+
+CREATE TABLE IF NOT EXISTS users_id_sequence
+(
+    next_val BIGINT
+) ENGINE = InnoDB;
+
+INSERT INTO users_id_sequence (next_val)
+SELECT 1 FROM DUAL WHERE NOT EXISTS (SELECT * FROM users_id_sequence);
+
+-- Having read next_val, the pooled optimizer hands out the 50 ids up to and including it,
+-- so it has to be at least MAX(id) + 50 for the first of them to be free
+UPDATE users_id_sequence
+SET next_val = GREATEST(next_val, (SELECT COALESCE(MAX(id) + 51, 1) FROM users));
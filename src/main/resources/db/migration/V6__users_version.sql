@@ -0,0 +1,14 @@
+-- Entity version of User, exposed to the clients as the ETag.
+-- Hibernate may have added the column already on databases it updated, so it is only added when missing.
+
+SET @add_statement = IF(EXISTS(SELECT *
+                               FROM information_schema.columns
+                               WHERE table_schema = DATABASE()
+                                 AND table_name = 'users'
+                                 AND column_name = 'version'),
+                        'DO 0',
+                        'ALTER TABLE users ADD COLUMN version BIGINT NOT NULL DEFAULT 0');
+
+PREPARE add_statement FROM @add_statement;
+EXECUTE add_statement;
+DEALLOCATE PREPARE add_statement;
@@ -0,0 +1,15 @@
+-- Rotating refresh tokens, only the SHA-256 of a token is stored.
+
+CREATE TABLE IF NOT EXISTS refresh_tokens
+(
+    id         BIGINT       NOT NULL AUTO_INCREMENT,
+    token_hash VARCHAR(43)  NOT NULL,
+    family_id  VARCHAR(36)  NOT NULL,
+    username   VARCHAR(255) NOT NULL,
+    expires_at DATETIME(6)  NOT NULL,
+    used       BIT          NOT NULL,
+    PRIMARY KEY (id),
+    CONSTRAINT uk_refresh_tokens_token_hash UNIQUE (token_hash),
+    INDEX idx_refresh_tokens_family_id (family_id),
+    INDEX idx_refresh_tokens_expires_at (expires_at)
+) ENGINE = InnoDB;
@@ -0,0 +1,79 @@
+package org.example.userservice;
+
+import io.restassured.RestAssured;
+import org.example.userservice.model.security.Role;
+import org.example.userservice.service.security.jwt.JwtTokenProvider;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalManagementPort;
+import org.springframework.boot.test.web.server.LocalServerPort;
+
+import static io.restassured.RestAssured.given;
+import static io.restassured.RestAssured.when;
+import static org.hamcrest.Matchers.containsString;
+
+@SpringBootTest(
+        webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = {
+                "management.endpoints.web.exposure.include=health,prometheus",
+                "management.server.port=0"
+        })
+@AutoConfigureObservability
+class MetricsTest extends BaseIntegrationTest {
+
+    @LocalServerPort
+    private int port;
+
+    @LocalManagementPort
+    private int managementPort;
+
+    @Autowired
+    private JwtTokenProvider jwtTokenProvider;
+
+    @BeforeEach
+    void setUp() {
+        RestAssured.baseURI = "http://localhost";
+        RestAssured.port = port;
+    }
+
+    @Test
+    void testPrometheusEndpoint() {
+
+        var token = jwtTokenProvider.createToken("test", Role.ADMIN.getPermissions());
+
+        given()
+            .header("Authorization", token)
+        .when()
+            .get("/api/v1/users/{id}", 0L)
+        .then()
+            .statusCode(404);
+
+        given()
+            .header("Authorization", token + "x")
+        .when()
+            .get("/api/v1/users/{id}", 0L)
+        .then()
+            .statusCode(401);
+
+        when()
+            .get("/actuator/prometheus")
+        .then()
+            .statusCode(403);
+
+        given()
+            .port(managementPort)
+        .when()
+            .get("/actuator/prometheus")
+        .then()
+            .statusCode(200)
+            .body(containsString("security_jwt_verification_seconds_bucket"))
+            .body(containsString("security_jwt_rejections_total{reason=\"invalid\""))
+            .body(containsString("user_service_seconds_count{"))
+            .body(containsString("spring_data_repository_invocations_seconds"))
+            .body(containsString("hikaricp_connections"))
+            .body(containsString("cache_gets_total{cache=\"security.user-details\""));
+    }
+}
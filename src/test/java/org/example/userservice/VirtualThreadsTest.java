@@ -0,0 +1,125 @@
+package org.example.userservice;
+
+import io.restassured.RestAssured;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.example.userservice.api.UserRequestDTO;
+import org.example.userservice.model.security.Role;
+import org.example.userservice.service.UserService;
+import org.example.userservice.service.security.jwt.JwtTokenProvider;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledForJreRange;
+import org.junit.jupiter.api.condition.JRE;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.nio.file.Files;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+
+import static io.restassured.RestAssured.given;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doAnswer;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("virtual-threads")
+@EnabledForJreRange(min = JRE.JAVA_21) // Run by the virtualThreadsTest task on a Java 21 toolchain
+class VirtualThreadsTest extends BaseIntegrationTest {
+
+    @LocalServerPort
+    private int port;
+
+    @SpyBean
+    private UserService userService;
+
+    @Autowired
+    private JwtTokenProvider jwtTokenProvider;
+
+    @Test
+    void testRequestRunsOnVirtualThreadWithSecurityContext() throws Exception {
+
+        var user = userService.create(new UserRequestDTO("virtual", "virtual", LocalDate.now(), "+11111111"));
+        var token = jwtTokenProvider.createToken("test", Role.ADMIN.getPermissions());
+
+        var handlerThread = new AtomicReference<Thread>();
+        var principal = new AtomicReference<String>();
+
+        doAnswer(invocation -> {
+            handlerThread.set(Thread.currentThread());
+            principal.set(SecurityContextHolder.getContext().getAuthentication().getName());
+            return invocation.callRealMethod();
+        }).when(userService).getById(anyLong());
+
+        RestAssured.port = port;
+
+        given()
+            .header("Authorization", token)
+        .when()
+            .get("http://localhost/api/v1/users/{id}", user.getId())
+        .then()
+            .statusCode(200);
+
+        // Thread.isVirtual() is not available when compiling for Java 17
+        assertTrue((Boolean) Thread.class.getMethod("isVirtual").invoke(handlerThread.get()));
+        assertEquals("test", principal.get());
+
+        given()
+            .header("Authorization", token)
+        .when()
+            .get("http://localhost/api/v1/users/export")
+        .then()
+            .statusCode(200);
+    }
+
+    @Test
+    void testJdbcCallsDoNotPinVirtualThreads() throws Exception {
+
+        userService.create(new UserRequestDTO("unpinned", "unpinned", LocalDate.now(), "+22222222"));
+        var token = jwtTokenProvider.createToken("test", Role.ADMIN.getPermissions());
+
+        RestAssured.port = port;
+
+        try (var recording = new Recording()) {
+            recording.enable("jdk.VirtualThreadPinned").withThreshold(Duration.ZERO).withStackTrace();
+            recording.start();
+
+            // The page and the export are read from the database, not from the second-level cache
+            given()
+                .header("Authorization", token)
+            .when()
+                .get("http://localhost/api/v1/users")
+            .then()
+                .statusCode(200);
+
+            given()
+                .header("Authorization", token)
+            .when()
+                .get("http://localhost/api/v1/users/export")
+            .then()
+                .statusCode(200);
+
+            recording.stop();
+
+            var file = Files.createTempFile("virtual-threads", ".jfr");
+            try {
+                recording.dump(file);
+                var pinned = RecordingFile.readAllEvents(file).stream()
+                        .filter(event -> event.getEventType().getName().equals("jdk.VirtualThreadPinned"))
+                        .map(RecordedEvent::toString)
+                        .collect(Collectors.joining(System.lineSeparator()));
+
+                assertTrue(pinned.isEmpty(), "Virtual threads were pinned:" + System.lineSeparator() + pinned);
+            } finally {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package org.example.userservice.config;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+
+class ReplicaRoutingDataSourceTest {
+
+    private final DataSource primary = mock(DataSource.class);
+    private final DataSource replica1 = mock(DataSource.class);
+    private final DataSource replica2 = mock(DataSource.class);
+
+    private final Connection primaryConnection = mock(Connection.class);
+    private final Connection replica1Connection = mock(Connection.class);
+    private final Connection replica2Connection = mock(Connection.class);
+
+    private final AtomicReference<String> principal = new AtomicReference<>();
+
+    private ReplicaRoutingDataSource routingDataSource;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+
+        when(primary.getConnection()).thenReturn(primaryConnection);
+        when(replica1.getConnection()).thenReturn(replica1Connection);
+        when(replica2.getConnection()).thenReturn(replica2Connection);
+
+        var replicas = new LinkedHashMap<String, DataSource>();
+        replicas.put("replica-0", replica1);
+        replicas.put("replica-1", replica2);
+
+        routingDataSource = new ReplicaRoutingDataSource(
+                primary, replicas, Duration.ofMinutes(1), Duration.ofSeconds(1), principal::get);
+    }
+
+    @AfterEach
+    void tearDown() {
+        TransactionSynchronizationManager.clear();
+    }
+
+    @Test
+    void testGetConnection_WritesGoToPrimary() throws SQLException {
+
+        assertSame(primaryConnection, routingDataSource.getConnection());
+
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+        assertSame(primaryConnection, routingDataSource.getConnection());
+
+        verifyNoInteractions(replica1, replica2);
+    }
+
+    @Test
+    void testGetConnection_NoReplicas() throws SQLException {
+
+        var primaryOnly = new ReplicaRoutingDataSource(
+                primary, new LinkedHashMap<>(), Duration.ofMinutes(1), Duration.ofSeconds(1), principal::get);
+
+        assertSame(primaryConnection, primaryOnly.getConnection());
+
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        assertSame(primaryConnection, primaryOnly.getConnection());
+        assertEquals(0, primaryOnly.getReplicaCount());
+    }
+
+    @Test
+    void testGetConnection_ReadOnlyRoundRobin() throws SQLException {
+
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        assertSame(replica1Connection, routingDataSource.getConnection());
+        assertSame(replica2Connection, routingDataSource.getConnection());
+        assertSame(replica1Connection, routingDataSource.getConnection());
+
+        verifyNoInteractions(primary);
+    }
+
+    @Test
+    void testGetConnection_FallbackToPrimary() throws SQLException {
+
+        when(replica1.getConnection()).thenThrow(new SQLException("Connection refused", "08S01"));
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        assertSame(primaryConnection, routingDataSource.getConnection());
+        assertEquals(1, routingDataSource.getHealthyReplicaCount());
+
+        // The failed replica is skipped until a health check passes
+        assertSame(replica2Connection, routingDataSource.getConnection());
+        assertSame(replica2Connection, routingDataSource.getConnection());
+
+        when(replica2.getConnection()).thenThrow(new SQLException("Connection refused", "08S01"));
+        assertSame(primaryConnection, routingDataSource.getConnection());
+        assertSame(primaryConnection, routingDataSource.getConnection());
+        assertEquals(0, routingDataSource.getHealthyReplicaCount());
+    }
+
+    @Test
+    void testGetConnection_PoolExhaustedKeepsReplica() throws SQLException {
+
+        when(replica1.getConnection())
+                .thenThrow(new SQLTransientConnectionException("replica-0 - Connection is not available, request timed out after 500ms."))
+                .thenReturn(replica1Connection);
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        assertSame(primaryConnection, routingDataSource.getConnection());
+        assertEquals(2, routingDataSource.getHealthyReplicaCount());
+
+        assertSame(replica2Connection, routingDataSource.getConnection());
+        assertSame(replica1Connection, routingDataSource.getConnection());
+    }
+
+    @Test
+    void testCheckHealth() throws SQLException {
+
+        when(replica1Connection.isValid(anyInt())).thenReturn(false);
+        when(replica2Connection.isValid(anyInt())).thenReturn(true);
+
+        routingDataSource.checkHealth();
+        assertEquals(1, routingDataSource.getHealthyReplicaCount());
+
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        assertSame(replica2Connection, routingDataSource.getConnection());
+        assertSame(replica2Connection, routingDataSource.getConnection());
+
+        when(replica1Connection.isValid(anyInt())).thenReturn(true);
+        routingDataSource.checkHealth();
+        assertEquals(2, routingDataSource.getHealthyReplicaCount());
+    }
+
+    @Test
+    void testGetConnection_ReadYourWrites() throws SQLException {
+
+        principal.set("writer");
+
+        // Write transaction, committed
+        TransactionSynchronizationManager.initSynchronization();
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+        assertSame(primaryConnection, routingDataSource.getConnection());
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        TransactionSynchronizationManager.clear();
+
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        assertSame(primaryConnection, routingDataSource.getConnection());
+
+        // Other principals are not affected
+        principal.set("reader");
+        assertNotSame(primaryConnection, routingDataSource.getConnection());
+    }
+
+    @Test
+    void testGetConnection_RolledBackWriteKeepsReplicas() throws SQLException {
+
+        principal.set("writer");
+
+        TransactionSynchronizationManager.initSynchronization();
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+        routingDataSource.getConnection();
+        TransactionSynchronizationManager.clear();
+
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        assertSame(replica1Connection, routingDataSource.getConnection());
+    }
+}
@@ -7,7 +7,11 @@ import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import io.restassured.RestAssured;
 import jakarta.annotation.PostConstruct;
 import org.example.userservice.BaseIntegrationTest;
+import org.example.userservice.api.UserBatchResultDTO;
+import org.example.userservice.api.UserPageDTO;
 import org.example.userservice.api.UserRequestDTO;
+import org.example.userservice.api.UserResponseDTO;
+import org.example.userservice.api.UsernameAvailabilityDTO;
 import org.example.userservice.model.User;
 import org.example.userservice.model.UserMainFields;
 import org.example.userservice.model.security.Role;
@@ -27,10 +31,13 @@ import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.stream.Collectors;
 
 import static io.restassured.RestAssured.given;
 import static io.restassured.RestAssured.when;
+import static org.hamcrest.Matchers.nullValue;
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
@@ -68,7 +75,7 @@ class UserControllerTest extends BaseIntegrationTest {
         RestAssured.baseURI = "http://localhost/api/v1/users";
         RestAssured.port = port;
 
-        assertTrue(userService.getAll().isEmpty(), "Looks like the database being used is not a test one. Make sure you are using the test database for this test.");
+        assertTrue(userService.getPage(null, null).getUsers().isEmpty(), "Looks like the database being used is not a test one. Make sure you are using the test database for this test.");
 
         usersInDB = List.of(
             userService.create(new UserRequestDTO("username1", "password1", LocalDate.now().minusYears(15), "+11111111")),
@@ -77,7 +84,7 @@ class UserControllerTest extends BaseIntegrationTest {
             userService.create(new UserRequestDTO("username4", "password4", LocalDate.now().minusDays(1), "+44444444"))
         );
 
-        assertFalse(userService.getAll().isEmpty());
+        assertFalse(userService.getPage(null, null).getUsers().isEmpty());
 
         Mockito.clearInvocations(userService);
     }
@@ -90,26 +97,121 @@ class UserControllerTest extends BaseIntegrationTest {
         .then()
             .statusCode(HttpStatus.FORBIDDEN.value());
 
-        verify(userService, never()).getAll();
+        verify(userService, never()).getPage(any(), any());
     }
 
     @Test
-    void testGetAll() throws JsonProcessingException {
+    void testGetPage() throws JsonProcessingException {
+
+        var usersFound = new HashSet<UserResponseDTO>();
+        String pageToken = null;
+
+        do {
+            var request = given()
+                    .header("Authorization", token)
+                    .queryParam("size", 3);
+            if (pageToken != null) {
+                request.queryParam("pageToken", pageToken);
+            }
+
+            var jsonResponse =
+                    request
+                    .when()
+                        .get()
+                    .then()
+                        .statusCode(200)
+                        .extract()
+                        .asPrettyString();
+
+            var page = objectMapper.readValue(jsonResponse, UserPageDTO.class);
+            assertTrue(page.getUsers().size() <= 3);
+
+            usersFound.addAll(page.getUsers());
+            pageToken = page.getNextPageToken();
+
+        } while (pageToken != null);
+
+        assertEquals(toResponses(usersInDB), usersFound);
+
+        verify(userService, times(2)).getPage(any(), eq(3));
+    }
+
+    @Test
+    void testGetPage_InvalidPageToken() {
+
+        given()
+            .header("Authorization", token)
+            .queryParam("pageToken", "not-a-token")
+        .when()
+            .get()
+        .then()
+            .statusCode(HttpStatus.BAD_REQUEST.value());
+    }
+
+    @Test
+    void testSearch() throws JsonProcessingException {
 
         var jsonResponse =
                 given()
                     .header("Authorization", token)
+                    .queryParam("usernamePrefix", "Username")
+                    .queryParam("birthDateFrom", LocalDate.now().minusYears(1).toString())
                 .when()
-                    .get()
+                    .get("/search")
                 .then()
                     .statusCode(200)
                     .extract()
                     .asPrettyString();
 
-        Set<User> usersFound = objectMapper.readValue(jsonResponse, new TypeReference<>() {});
-        assertEquals(new HashSet<>(usersInDB), usersFound);
+        var page = objectMapper.readValue(jsonResponse, UserPageDTO.class);
+        assertEquals(
+                usersInDB.subList(2, 4).stream().map(UserResponseDTO::of).toList(),
+                page.getUsers());
+        assertNull(page.getNextPageToken());
+
+        given()
+            .header("Authorization", token)
+        .when()
+            .get("/search")
+        .then()
+            .statusCode(HttpStatus.BAD_REQUEST.value());
+    }
+
+    @Test
+    void testExport() throws JsonProcessingException {
+
+        var response =
+                given()
+                    .header("Authorization", token)
+                .when()
+                    .get("/export")
+                .then()
+                    .statusCode(200)
+                    .contentType("application/x-ndjson")
+                    .extract()
+                    .asString();
+
+        var usersExported = new HashSet<UserResponseDTO>();
+        for (var line : response.split("\n")) {
+            usersExported.add(objectMapper.readValue(line, UserResponseDTO.class));
+        }
 
-        verify(userService, times(1)).getAll();
+        assertEquals(toResponses(usersInDB), usersExported);
+        assertFalse(response.contains("password"));
+    }
+
+    @Test
+    void testExport_AcceptsGzip() {
+
+        assertTrue(UserController.acceptsGzip("gzip"));
+        assertTrue(UserController.acceptsGzip("deflate, GZIP;q=0.5"));
+        assertTrue(UserController.acceptsGzip("br, *;q=0.1"));
+
+        assertFalse(UserController.acceptsGzip(null));
+        assertFalse(UserController.acceptsGzip("identity"));
+        assertFalse(UserController.acceptsGzip("gzip;q=0"));
+        assertFalse(UserController.acceptsGzip("gzip; q=0.000, *"));
+        assertFalse(UserController.acceptsGzip("*;q=0"));
     }
 
     @Test
@@ -127,15 +229,46 @@ class UserControllerTest extends BaseIntegrationTest {
                         .extract()
                         .asPrettyString();
 
-            var userFound = objectMapper.readValue(jsonResponse, User.class);
+            var userFound = objectMapper.readValue(jsonResponse, UserResponseDTO.class);
 
             assertUserEquals(user, userFound);
+            assertFalse(jsonResponse.contains("password"));
             verify(userService, times(1)).getById(user.getId());
         }
 
         verify(userService, times(usersInDB.size())).getById(anyLong());
     }
 
+    @Test
+    void testGetById_NotModified() {
+
+        var user = usersInDB.get(0);
+
+        var eTag =
+                given()
+                    .header("Authorization", token)
+                .when()
+                    .get("/{id}", user.getId())
+                .then()
+                    .statusCode(200)
+                    .extract()
+                    .header("ETag");
+
+        assertNotNull(eTag);
+
+        given()
+            .header("Authorization", token)
+            .header("If-None-Match", eTag)
+        .when()
+            .get("/{id}", user.getId())
+        .then()
+            .statusCode(HttpStatus.NOT_MODIFIED.value())
+            .header("ETag", eTag);
+
+        verify(userService, times(1)).getById(user.getId());
+        verify(userService, times(1)).getVersionById(user.getId());
+    }
+
     @Test
     void testGetById_NotFound() {
 
@@ -166,7 +299,7 @@ class UserControllerTest extends BaseIntegrationTest {
                         .extract()
                         .asPrettyString();
 
-            var userFound = objectMapper.readValue(jsonResponse, User.class);
+            var userFound = objectMapper.readValue(jsonResponse, UserResponseDTO.class);
 
             assertUserEquals(user, userFound);
             verify(userService, times(1)).getByUsername(user.getUsername());
@@ -190,6 +323,85 @@ class UserControllerTest extends BaseIntegrationTest {
         verify(userService, times(1)).getByUsername(username);
     }
 
+    @Test
+    void testIsUsernameAvailable() throws JsonProcessingException {
+
+        var jsonResponse =
+                given()
+                    .header("Authorization", token)
+                .when()
+                    .get("/username-available/{username}", usersInDB.get(0).getUsername())
+                .then()
+                    .statusCode(200)
+                    .extract()
+                    .asPrettyString();
+
+        assertEquals(new UsernameAvailabilityDTO(usersInDB.get(0).getUsername(), false),
+                objectMapper.readValue(jsonResponse, UsernameAvailabilityDTO.class));
+
+        jsonResponse =
+                given()
+                    .header("Authorization", token)
+                .when()
+                    .get("/username-available/{username}", "free_username")
+                .then()
+                    .statusCode(200)
+                    .extract()
+                    .asPrettyString();
+
+        assertEquals(new UsernameAvailabilityDTO("free_username", true),
+                objectMapper.readValue(jsonResponse, UsernameAvailabilityDTO.class));
+    }
+
+    @Test
+    void testGetAllByIds() throws JsonProcessingException {
+
+        var jsonResponse =
+                given()
+                    .header("Authorization", token)
+                    .queryParam("ids", usersInDB.get(0).getId(), usersInDB.get(1).getId(), 0L)
+                .when()
+                    .get("/by-ids")
+                .then()
+                    .statusCode(200)
+                    .extract()
+                    .asPrettyString();
+
+        Map<Long, UserResponseDTO> usersFound = objectMapper.readValue(jsonResponse, new TypeReference<>() {});
+
+        assertEquals(3, usersFound.size());
+        assertUserEquals(usersInDB.get(0), usersFound.get(usersInDB.get(0).getId()));
+        assertUserEquals(usersInDB.get(1), usersFound.get(usersInDB.get(1).getId()));
+        assertTrue(usersFound.containsKey(0L));
+        assertNull(usersFound.get(0L));
+
+        verify(userService, times(1)).getAllByIds(anyList());
+    }
+
+    @Test
+    void testGetAllByUsernames() throws JsonProcessingException {
+
+        var jsonResponse =
+                given()
+                    .header("Authorization", token)
+                    .queryParam("usernames", usersInDB.get(0).getUsername(), "-")
+                .when()
+                    .get("/by-usernames")
+                .then()
+                    .statusCode(200)
+                    .extract()
+                    .asPrettyString();
+
+        Map<String, UserResponseDTO> usersFound = objectMapper.readValue(jsonResponse, new TypeReference<>() {});
+
+        assertEquals(2, usersFound.size());
+        assertUserEquals(usersInDB.get(0), usersFound.get(usersInDB.get(0).getUsername()));
+        assertTrue(usersFound.containsKey("-"));
+        assertNull(usersFound.get("-"));
+
+        verify(userService, times(1)).getAllByUsernames(anyList());
+    }
+
     @Test
     void testCreate() throws JsonProcessingException {
 
@@ -207,10 +419,11 @@ class UserControllerTest extends BaseIntegrationTest {
                     .extract()
                     .asPrettyString();
 
-       User userCreated = objectMapper.readValue(jsonResponse, User.class);
+        var userCreated = objectMapper.readValue(jsonResponse, UserResponseDTO.class);
 
         assertNotNull(userCreated);
-        assertNotNull(userCreated.getId());
+        assertNotNull(userCreated.id());
+        assertFalse(jsonResponse.contains("password"));
         assertUserEquals(newUser.toUser(), userCreated);
 
         verify(userService, times(1)).create(any(UserMainFields.class));
@@ -236,6 +449,35 @@ class UserControllerTest extends BaseIntegrationTest {
         verify(userService, times(usersInDB.size())).create(any(UserRequestDTO.class));
     }
 
+    @Test
+    void testCreateAll() throws JsonProcessingException {
+
+        var newUsers = List.of(
+                new UserRequestDTO("new_username1", "new_password", LocalDate.now(), "+99999991"),
+                new UserRequestDTO(usersInDB.get(0).getUsername(), "new_password", LocalDate.now(), "+99999992"));
+
+        var jsonResponse =
+                given()
+                    .header("Authorization", token)
+                    .contentType("application/json")
+                    .body(objectMapper.writeValueAsString(newUsers))
+                .when()
+                    .post("/batch")
+                .then()
+                    .statusCode(200)
+                    .extract()
+                    .asPrettyString();
+
+        List<UserBatchResultDTO> results = objectMapper.readValue(jsonResponse, new TypeReference<>() {});
+
+        assertEquals(2, results.size());
+        assertEquals(UserBatchResultDTO.Status.CREATED, results.get(0).getStatus());
+        assertNotNull(results.get(0).getId());
+        assertEquals(UserBatchResultDTO.Status.CONFLICT, results.get(1).getStatus());
+
+        verify(userService, times(1)).createAll(anyList());
+    }
+
     @Test
     void testUpdate() throws JsonProcessingException {
 
@@ -247,8 +489,8 @@ class UserControllerTest extends BaseIntegrationTest {
                     user.getBirthDate().minusMonths(2),
                     user.getPhoneNumber()+"1");
 
-            var jsonResponse
-                    = given()
+            var jsonResponse =
+                    given()
                         .header("Authorization", token)
                         .contentType("application/json")
                         .body(objectMapper.writeValueAsString(userToUpdate))
@@ -259,19 +501,18 @@ class UserControllerTest extends BaseIntegrationTest {
                         .extract()
                         .asPrettyString();
 
-            User userUpdated = objectMapper.readValue(jsonResponse, User.class);
-
-            assertUserEquals(userToUpdate.toUser(), userUpdated);
+            assertEquals(userService.getById(user.getId()), objectMapper.readValue(jsonResponse, UserResponseDTO.class));
+            assertUserEquals(userToUpdate.toUser(), userService.getById(user.getId()));
         }
 
-        verify(userService, times(usersInDB.size())).update(anyLong(), any(UserRequestDTO.class));
+        verify(userService, times(usersInDB.size())).update(anyLong(), isNull(), any(UserRequestDTO.class));
     }
 
     @Test
     void testUpdate_NotFound() throws JsonProcessingException {
 
         var id = 0L;
-        var userToUpdate = new UserRequestDTO();
+        var userToUpdate = new UserRequestDTO("username0", "password0", null, null);
 
         given()
             .header("Authorization", token)
@@ -282,13 +523,160 @@ class UserControllerTest extends BaseIntegrationTest {
         .then()
             .statusCode(HttpStatus.NOT_FOUND.value());
 
-        verify(userService, times(1)).update(anyLong(), any(UserRequestDTO.class));
+        verify(userService, times(1)).update(anyLong(), isNull(), any(UserRequestDTO.class));
+    }
+
+    @Test
+    void testUpdate_IfMatch() throws JsonProcessingException {
+
+        var user = usersInDB.get(0);
+        var userToUpdate = new UserRequestDTO(user.getUsername(), null, user.getBirthDate(), "+99999999");
+
+        var eTag =
+                given()
+                    .header("Authorization", token)
+                .when()
+                    .get("/{id}", user.getId())
+                .then()
+                    .extract()
+                    .header("ETag");
+
+        var newETag =
+                given()
+                    .header("Authorization", token)
+                    .header("If-Match", eTag)
+                    .contentType("application/json")
+                    .body(objectMapper.writeValueAsString(userToUpdate))
+                .when()
+                    .put("/{id}", user.getId())
+                .then()
+                    .statusCode(200)
+                    .extract()
+                    .header("ETag");
+
+        assertNotEquals(eTag, newETag);
+
+        // The first ETag is stale now
+        given()
+            .header("Authorization", token)
+            .header("If-Match", eTag)
+            .contentType("application/json")
+            .body(objectMapper.writeValueAsString(userToUpdate))
+        .when()
+            .put("/{id}", user.getId())
+        .then()
+            .statusCode(HttpStatus.PRECONDITION_FAILED.value());
+
+        given()
+            .header("Authorization", token)
+            .header("If-Match", eTag)
+        .when()
+            .delete("/{id}", user.getId())
+        .then()
+            .statusCode(HttpStatus.PRECONDITION_FAILED.value());
+
+        given()
+            .header("Authorization", token)
+            .header("If-None-Match", newETag)
+        .when()
+            .get("/{id}", user.getId())
+        .then()
+            .statusCode(HttpStatus.NOT_MODIFIED.value());
+    }
+
+    @Test
+    void testIfMatch_Wildcard() throws JsonProcessingException {
+
+        var user = usersInDB.get(0);
+        var userToUpdate = new UserRequestDTO(user.getUsername(), null, user.getBirthDate(), "+99999999");
+
+        // Any current representation matches
+        given()
+            .header("Authorization", token)
+            .header("If-Match", "*")
+            .contentType("application/json")
+            .body(objectMapper.writeValueAsString(userToUpdate))
+        .when()
+            .put("/{id}", user.getId())
+        .then()
+            .statusCode(200);
+
+        given()
+            .header("Authorization", token)
+            .header("If-Match", "*")
+            .contentType("application/json")
+            .body(objectMapper.writeValueAsString(userToUpdate))
+        .when()
+            .patch("/{id}", user.getId())
+        .then()
+            .statusCode(HttpStatus.NO_CONTENT.value())
+            .header("ETag", nullValue());
+
+        given()
+            .header("Authorization", token)
+            .header("If-Match", "*")
+        .when()
+            .delete("/{id}", user.getId())
+        .then()
+            .statusCode(200);
+
+        // A user that does not exist has no current representation to match
+        given()
+            .header("Authorization", token)
+            .header("If-Match", "*")
+            .contentType("application/json")
+            .body(objectMapper.writeValueAsString(userToUpdate))
+        .when()
+            .put("/{id}", user.getId())
+        .then()
+            .statusCode(HttpStatus.PRECONDITION_FAILED.value());
+
+        given()
+            .header("Authorization", token)
+            .header("If-Match", "*")
+            .contentType("application/json")
+            .body(objectMapper.writeValueAsString(userToUpdate))
+        .when()
+            .patch("/{id}", user.getId())
+        .then()
+            .statusCode(HttpStatus.PRECONDITION_FAILED.value());
+
+        given()
+            .header("Authorization", token)
+            .header("If-Match", "*")
+        .when()
+            .delete("/{id}", user.getId())
+        .then()
+            .statusCode(HttpStatus.PRECONDITION_FAILED.value());
+    }
+
+    @Test
+    void testPatch() throws JsonProcessingException {
+
+        var user = usersInDB.get(0);
+        var userToPatch = new UserRequestDTO(null, null, null, "+99999999");
+
+        given()
+            .header("Authorization", token)
+            .contentType("application/json")
+            .body(objectMapper.writeValueAsString(userToPatch))
+        .when()
+            .patch("/{id}", user.getId())
+        .then()
+            .statusCode(HttpStatus.NO_CONTENT.value());
+
+        var userPatched = userService.getById(user.getId());
+        assertEquals(user.getUsername(), userPatched.username());
+        assertEquals(user.getBirthDate(), userPatched.birthDate());
+        assertEquals("+99999999", userPatched.phoneNumber());
+
+        verify(userService, times(1)).patch(anyLong(), isNull(), any(UserRequestDTO.class));
     }
 
     @Test
     void testDeleteById() {
 
-        assertFalse(userService.getAll().isEmpty());
+        assertFalse(userService.getPage(null, null).getUsers().isEmpty());
 
         for (var user : usersInDB) {
 
@@ -301,17 +689,21 @@ class UserControllerTest extends BaseIntegrationTest {
                 .extract()
                 .asPrettyString();
 
-            verify(userService, times(1)).deleteById(user.getId());
+            verify(userService, times(1)).deleteById(user.getId(), null);
         }
 
-        verify(userService, times(usersInDB.size())).deleteById(anyLong());
-        assertTrue(userService.getAll().isEmpty());
+        verify(userService, times(usersInDB.size())).deleteById(anyLong(), isNull());
+        assertTrue(userService.getPage(null, null).getUsers().isEmpty());
+    }
+
+    private Set<UserResponseDTO> toResponses(List<User> users) {
+        return users.stream().map(UserResponseDTO::of).collect(Collectors.toSet());
     }
 
-    private void assertUserEquals(User userExpected, User userActual) {
-        assertEquals(userExpected, userActual);
-        assertEquals(userExpected.getPassword(), userActual.getPassword());
-        assertEquals(userExpected.getBirthDate(), userActual.getBirthDate());
-        assertEquals(userExpected.getPhoneNumber(), userActual.getPhoneNumber());
+    private void assertUserEquals(User userExpected, UserResponseDTO userActual) {
+        assertNotNull(userActual);
+        assertEquals(userExpected.getUsername(), userActual.username());
+        assertEquals(userExpected.getBirthDate(), userActual.birthDate());
+        assertEquals(userExpected.getPhoneNumber(), userActual.phoneNumber());
     }
 }
\ No newline at end of file
@@ -5,11 +5,15 @@ import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import io.restassured.RestAssured;
 import org.example.userservice.BaseIntegrationTest;
+import org.example.userservice.api.security.RefreshTokenDto;
+import org.example.userservice.api.security.TokenIntrospectionDto;
 import org.example.userservice.api.security.UserDetailsDto;
 import org.example.userservice.model.security.Role;
 import org.example.userservice.model.security.UserDetailsImpl;
 import org.example.userservice.repository.security.UserDetailsRepository;
 import org.example.userservice.service.security.jwt.JwtTokenProvider;
+import org.example.userservice.service.security.jwt.RefreshTokenService;
+import org.example.userservice.service.security.jwt.TokenIntrospectionService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -17,16 +21,20 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.SpyBean;
 import org.springframework.boot.test.web.server.LocalServerPort;
 import org.springframework.http.HttpStatus;
-import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.test.annotation.DirtiesContext;
 
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
 
 import static io.restassured.RestAssured.given;
-import static org.junit.jupiter.api.Assertions.assertEquals;
-import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
 
@@ -41,14 +49,15 @@ class AuthenticationControllerTest extends BaseIntegrationTest {
     private JwtTokenProvider jwtTokenProvider;
     @SpyBean
     private UserDetailsService userDetailsService;
-    @SpyBean
-    private AuthenticationManager authenticationManager;
-
     @SpyBean
     private PasswordEncoder passwordEncoder;
 
     @SpyBean
     private UserDetailsRepository userDetailsRepository;
+    @SpyBean
+    private TokenIntrospectionService tokenIntrospectionService;
+    @SpyBean
+    private RefreshTokenService refreshTokenService;
 
     @Autowired
     private ObjectMapper objectMapper;
@@ -69,6 +78,12 @@ class AuthenticationControllerTest extends BaseIntegrationTest {
 
         var userDetailsDto = new UserDetailsDto(username, password);
 
+        var issuingThread = new AtomicReference<String>();
+        doAnswer(invocation -> {
+            issuingThread.set(Thread.currentThread().getName());
+            return invocation.callRealMethod();
+        }).when(refreshTokenService).issue(anyString());
+
         var jsonResponse =
                 given()
                         .contentType("application/json")
@@ -85,9 +100,13 @@ class AuthenticationControllerTest extends BaseIntegrationTest {
         assertFalse(userCredentials.isEmpty());
         assertEquals(userDetailsDto.getUsername(), userCredentials.get("username"));
 
-        verify(authenticationManager, times(1)).authenticate(any());
-        verify(userDetailsService, atLeastOnce()).loadUserByUsername(userDetailsDto.getUsername());
+        verify(userDetailsService, times(1)).loadUserByUsername(userDetailsDto.getUsername());
+        verify(passwordEncoder, times(1)).matches(eq(password), anyString());
         verify(jwtTokenProvider, times(1)).createToken(anyString(), anyCollection());
+
+        // The INSERT of the refresh token does not occupy a password hashing thread
+        assertNotNull(issuingThread.get());
+        assertFalse(issuingThread.get().startsWith("password-hashing-"));
     }
 
     @Test
@@ -108,7 +127,238 @@ class AuthenticationControllerTest extends BaseIntegrationTest {
         .then()
                 .statusCode(HttpStatus.UNAUTHORIZED.value());
 
-        verify(authenticationManager, times(1)).authenticate(any());
+        verify(userDetailsService, times(1)).loadUserByUsername(userDetailsDto.getUsername());
+        verify(passwordEncoder, times(1)).matches(eq(userDetailsDto.getPassword()), anyString());
+        verify(jwtTokenProvider, never()).createToken(anyString(), anyCollection());
+    }
+
+    @Test
+    void testLogin_WrongPassword() throws JsonProcessingException {
+
+        var username = "admin";
+        var password = "admin";
+
+        userDetailsRepository.save(new UserDetailsImpl(null, username, passwordEncoder.encode(password), Role.ADMIN, true));
+
+        var userDetailsDto = new UserDetailsDto(username, "wrong");
+
+        given()
+                .contentType("application/json")
+                .body(objectMapper.writeValueAsString(userDetailsDto))
+        .when()
+                .post("/login")
+        .then()
+                .statusCode(HttpStatus.UNAUTHORIZED.value());
+
+        verify(userDetailsService, times(1)).loadUserByUsername(username);
+        verify(jwtTokenProvider, never()).createToken(anyString(), anyCollection());
+    }
+
+    @Test
+    void testIntrospect() throws JsonProcessingException {
+
+        var username = "admin";
+
+        userDetailsRepository.save(new UserDetailsImpl(null, username, passwordEncoder.encode("admin"), Role.ADMIN, true));
+
+        var token = jwtTokenProvider.createToken(username, Role.ADMIN.getAuthorities());
+
+        var jsonResponse =
+                given()
+                        .header("Authorization", createIntrospectorToken())
+                        .contentType("application/json")
+                        .body(objectMapper.writeValueAsString(List.of(token, "not-a-token", token)))
+                .when()
+                        .post("/introspect")
+                .then()
+                        .statusCode(200)
+                        .extract()
+                        .asPrettyString();
+
+        List<TokenIntrospectionDto> results = objectMapper.readValue(jsonResponse, new TypeReference<>() {});
+
+        assertEquals(3, results.size());
+        assertTrue(results.get(0).isActive());
+        assertEquals(username, results.get(0).getSubject());
+        assertEquals(
+                Role.ADMIN.getAuthorities().stream().map(GrantedAuthority::getAuthority).collect(Collectors.toSet()),
+                new HashSet<>(results.get(0).getAuthorities()));
+        assertTrue(results.get(0).getExpiresIn() > 0);
+        assertEquals(TokenIntrospectionDto.inactive(), results.get(1));
+        assertEquals(results.get(0).getSubject(), results.get(2).getSubject());
+
+        verify(jwtTokenProvider, times(2)).verifyToken(token);
+        verify(jwtTokenProvider, times(1)).verifyToken("not-a-token");
+    }
+
+    @Test
+    void testIntrospect_Forbidden() throws JsonProcessingException {
+
+        userDetailsRepository.save(new UserDetailsImpl(null, "reader", passwordEncoder.encode("reader"), Role.USER, true));
+        var readerToken = jwtTokenProvider.createToken("reader", Role.USER.getAuthorities());
+        var body = objectMapper.writeValueAsString(List.of(readerToken));
+
+        given()
+                .contentType("application/json")
+                .body(body)
+        .when()
+                .post("/introspect")
+        .then()
+                .statusCode(HttpStatus.FORBIDDEN.value());
+
+        given()
+                .header("Authorization", readerToken)
+                .contentType("application/json")
+                .body(body)
+        .when()
+                .post("/introspect")
+        .then()
+                .statusCode(HttpStatus.FORBIDDEN.value());
+
+        verify(tokenIntrospectionService, never()).introspect(anyList());
+    }
+
+    @Test
+    void testIntrospect_TooLarge() throws JsonProcessingException {
+
+        var tokens = Collections.nCopies(101, "not-a-token");
+
+        given()
+                .header("Authorization", createIntrospectorToken())
+                .contentType("application/json")
+                .body(objectMapper.writeValueAsString(tokens))
+        .when()
+                .post("/introspect")
+        .then()
+                .statusCode(HttpStatus.BAD_REQUEST.value());
+
+        verify(jwtTokenProvider, never()).verifyToken("not-a-token");
+    }
+
+    // Account of a service that only introspects tokens
+    private String createIntrospectorToken() {
+        userDetailsRepository.save(new UserDetailsImpl(null, "introspector", passwordEncoder.encode("introspector"), Role.SERVICE, true));
+        return jwtTokenProvider.createToken("introspector", Role.SERVICE.getAuthorities());
+    }
+
+    @Test
+    void testRefresh() throws JsonProcessingException {
+
+        var username = "admin";
+        var password = "admin";
+
+        userDetailsRepository.save(new UserDetailsImpl(null, username, passwordEncoder.encode(password), Role.ADMIN, true));
+
+        var jsonResponse =
+                given()
+                        .contentType("application/json")
+                        .body(objectMapper.writeValueAsString(new UserDetailsDto(username, password)))
+                .when()
+                        .post("/login")
+                .then()
+                        .statusCode(200)
+                        .extract()
+                        .asPrettyString();
+
+        Map<String, String> loginResponse = objectMapper.readValue(jsonResponse, new TypeReference<>() {});
+        var refreshToken = loginResponse.get("refreshToken");
+        assertNotNull(refreshToken);
+
+        jsonResponse =
+                given()
+                        .contentType("application/json")
+                        .body(objectMapper.writeValueAsString(new RefreshTokenDto(refreshToken)))
+                .when()
+                        .post("/refresh")
+                .then()
+                        .statusCode(200)
+                        .extract()
+                        .asPrettyString();
+
+        Map<String, String> refreshResponse = objectMapper.readValue(jsonResponse, new TypeReference<>() {});
+        assertEquals(username, refreshResponse.get("username"));
+        assertTrue(jwtTokenProvider.validateToken(refreshResponse.get("token")));
+        assertNotEquals(refreshToken, refreshResponse.get("refreshToken"));
+
+        // The used token is rejected and revokes its family, so the newest token is rejected too
+        given()
+                .contentType("application/json")
+                .body(objectMapper.writeValueAsString(new RefreshTokenDto(refreshToken)))
+        .when()
+                .post("/refresh")
+        .then()
+                .statusCode(HttpStatus.UNAUTHORIZED.value());
+
+        given()
+                .contentType("application/json")
+                .body(objectMapper.writeValueAsString(new RefreshTokenDto(refreshResponse.get("refreshToken"))))
+        .when()
+                .post("/refresh")
+        .then()
+                .statusCode(HttpStatus.UNAUTHORIZED.value());
+
+        // The password was verified only once, on login
+        verify(passwordEncoder, times(1)).matches(eq(password), anyString());
+        verify(jwtTokenProvider, times(2)).createToken(anyString(), anyCollection());
+    }
+
+    @Test
+    void testRefresh_Unknown() throws JsonProcessingException {
+
+        given()
+                .contentType("application/json")
+                .body(objectMapper.writeValueAsString(new RefreshTokenDto("unknown")))
+        .when()
+                .post("/refresh")
+        .then()
+                .statusCode(HttpStatus.UNAUTHORIZED.value());
+
         verify(jwtTokenProvider, never()).createToken(anyString(), anyCollection());
     }
-}
\ No newline at end of file
+
+    @Test
+    void testLogout() throws JsonProcessingException {
+
+        var username = "admin";
+        var password = "admin";
+
+        userDetailsRepository.save(new UserDetailsImpl(null, username, passwordEncoder.encode(password), Role.ADMIN, true));
+
+        var jsonResponse =
+                given()
+                        .contentType("application/json")
+                        .body(objectMapper.writeValueAsString(new UserDetailsDto(username, password)))
+                .when()
+                        .post("/login")
+                .then()
+                        .statusCode(200)
+                        .extract()
+                        .asPrettyString();
+
+        Map<String, String> loginResponse = objectMapper.readValue(jsonResponse, new TypeReference<>() {});
+        var token = loginResponse.get("token");
+        var otherToken = jwtTokenProvider.createToken(username, Role.ADMIN.getAuthorities());
+
+        given()
+                .header("authorization", token)
+                .contentType("application/json")
+                .body(objectMapper.writeValueAsString(new RefreshTokenDto(loginResponse.get("refreshToken"))))
+        .when()
+                .post("/logout")
+        .then()
+                .statusCode(HttpStatus.NO_CONTENT.value());
+
+        // Only the presented token is revoked, other tokens of the user stay valid
+        assertFalse(jwtTokenProvider.validateToken(token));
+        assertThrows(RuntimeException.class, () -> jwtTokenProvider.getAuthentication(token));
+        assertTrue(jwtTokenProvider.validateToken(otherToken));
+
+        given()
+                .contentType("application/json")
+                .body(objectMapper.writeValueAsString(new RefreshTokenDto(loginResponse.get("refreshToken"))))
+        .when()
+                .post("/refresh")
+        .then()
+                .statusCode(HttpStatus.UNAUTHORIZED.value());
+    }
+}
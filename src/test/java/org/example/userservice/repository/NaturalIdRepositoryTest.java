@@ -0,0 +1,118 @@
+package org.example.userservice.repository;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.example.userservice.BaseIntegrationTest;
+import org.example.userservice.api.UserRequestDTO;
+import org.example.userservice.model.User;
+import org.example.userservice.model.security.Role;
+import org.example.userservice.model.security.UserDetailsImpl;
+import org.example.userservice.repository.security.UserDetailsRepository;
+import org.example.userservice.service.UserService;
+import org.example.userservice.service.security.UserDetailsServiceImpl;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class NaturalIdRepositoryTest extends BaseIntegrationTest {
+
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private UserDetailsRepository userDetailsRepository;
+
+    @Autowired
+    private UserService userService;
+    @Autowired
+    private UserDetailsServiceImpl userDetailsService;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @AfterEach
+    void tearDown() {
+        userRepository.deleteAll();
+        userDetailsRepository.findByUsername("cached-principal").ifPresent(userDetailsRepository::delete);
+    }
+
+    @Test
+    void testFindByUsername_Cached() {
+
+        var user = userRepository.save(new User(null, "cached-user", "password", LocalDate.now(), "+11111111"));
+
+        assertEquals(user.getId(), userRepository.findByUsername("cached-user").orElseThrow().getId());
+        statistics.clear();
+
+        var userFound = userRepository.findByUsername("cached-user").orElseThrow();
+
+        assertEquals(user.getId(), userFound.getId());
+        assertEquals(user.getPhoneNumber(), userFound.getPhoneNumber());
+        assertEquals(0, statistics.getPrepareStatementCount());
+        assertTrue(statistics.getNaturalIdCacheHitCount() > 0);
+        assertTrue(statistics.getSecondLevelCacheHitCount() > 0);
+    }
+
+    @Test
+    void testFindByUsername_AfterUpdate() {
+
+        var user = userRepository.save(new User(null, "updated-user", "password", LocalDate.now(), "+11111111"));
+        userRepository.findByUsername("updated-user").orElseThrow();
+
+        // The entity update replaces the cached entity and the natural id resolution
+        userService.patch(user.getId(), null, new UserRequestDTO("renamed-user", null, null, "+22222222"));
+
+        assertTrue(userRepository.findByUsername("updated-user").isEmpty());
+        var userUpdated = userRepository.findByUsername("renamed-user").orElseThrow();
+        assertEquals(user.getId(), userUpdated.getId());
+        assertEquals("+22222222", userUpdated.getPhoneNumber());
+    }
+
+    @Test
+    void testFindByUsername_OthersCachedAfterUpdate() {
+
+        var user = userRepository.save(new User(null, "patched-user", "password", LocalDate.now(), "+11111111"));
+        userRepository.save(new User(null, "untouched-user", "password", LocalDate.now(), "+22222222"));
+        userRepository.findByUsername("untouched-user").orElseThrow();
+
+        userService.patch(user.getId(), null, new UserRequestDTO(null, null, null, "+33333333"));
+        userService.deleteById(user.getId(), null);
+        statistics.clear();
+
+        // Only the entries of the changed user are replaced, the rest of the region stays
+        assertEquals("+22222222", userRepository.findByUsername("untouched-user").orElseThrow().getPhoneNumber());
+        assertEquals(0, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void testFindByUsername_Principal() {
+
+        userDetailsRepository.save(new UserDetailsImpl(null, "cached-principal", "password", Role.USER, true));
+
+        assertTrue(userDetailsRepository.findByUsername("cached-principal").orElseThrow().isEnabled());
+        statistics.clear();
+
+        assertTrue(userDetailsRepository.findByUsername("cached-principal").orElseThrow().isEnabled());
+        assertEquals(0, statistics.getPrepareStatementCount());
+
+        // The entity update refreshes the cached entry
+        userDetailsService.deactivate("cached-principal");
+
+        assertFalse(userDetailsRepository.findByUsername("cached-principal").orElseThrow().isEnabled());
+    }
+}
@@ -0,0 +1,79 @@
+package org.example.userservice.service;
+
+import org.example.userservice.BaseIntegrationTest;
+import org.example.userservice.api.UserRequestDTO;
+import org.example.userservice.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Not transactional on purpose: every create has to commit on its own to compete for the unique constraint
+@SpringBootTest
+class UserServiceConcurrencyTest extends BaseIntegrationTest {
+
+    private static final int THREADS = 16;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @AfterEach
+    void tearDown() {
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void testCreate_ConcurrentSameUsername_ExactlyOneWinner() throws Exception {
+
+        var executor = Executors.newFixedThreadPool(THREADS);
+        var start = new CountDownLatch(1);
+
+        var created = new AtomicInteger();
+        var conflicts = new AtomicInteger();
+
+        try {
+            var futures = new ArrayList<Future<?>>();
+            for (int i = 0; i < THREADS; i++) {
+                var phoneNumber = "+" + i;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    try {
+                        userService.create(new UserRequestDTO("concurrent", "password", LocalDate.now(), phoneNumber));
+                        created.incrementAndGet();
+                    } catch (ResponseStatusException e) {
+                        assertEquals(HttpStatus.CONFLICT, e.getStatusCode());
+                        conflicts.incrementAndGet();
+                    }
+                    return null;
+                }));
+            }
+
+            start.countDown();
+            for (var future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(1, created.get());
+        assertEquals(THREADS - 1, conflicts.get());
+        assertNotNull(userService.getByUsername("concurrent"));
+        assertEquals(1, userRepository.count());
+    }
+}
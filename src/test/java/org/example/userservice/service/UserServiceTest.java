@@ -1,7 +1,9 @@
 package org.example.userservice.service;
 
 import org.example.userservice.BaseIntegrationTest;
+import org.example.userservice.api.UserBatchResultDTO;
 import org.example.userservice.api.UserRequestDTO;
+import org.example.userservice.api.UserResponseDTO;
 import org.example.userservice.model.User;
 import org.example.userservice.model.UserMainFields;
 import org.example.userservice.repository.UserRepository;
@@ -11,10 +13,13 @@ import org.mockito.Mockito;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.data.domain.Limit;
+import org.springframework.http.HttpStatus;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
 
 import java.time.LocalDate;
-import java.util.HashSet;
+import java.util.ArrayList;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -28,6 +33,9 @@ class UserServiceTest extends BaseIntegrationTest {
     @Autowired
     private UserService userService;
 
+    @Autowired
+    private UsernameAvailabilityService usernameAvailabilityService;
+
     @SpyBean
     private UserRepository userRepository;
 
@@ -51,17 +59,43 @@ class UserServiceTest extends BaseIntegrationTest {
     }
 
     @Test
-    void testGetAll() {
-        var result = userService.getAll();
-        assertEquals(new HashSet<>(usersInDB), new HashSet<>(result));
-        verify(userRepository, times(1)).findAll();
+    void testGetPage() {
+
+        var result = new ArrayList<UserResponseDTO>();
+
+        var page = userService.getPage(null, 3);
+        assertEquals(3, page.getUsers().size());
+        assertNotNull(page.getNextPageToken());
+        result.addAll(page.getUsers());
+
+        page = userService.getPage(page.getNextPageToken(), 3);
+        assertEquals(usersInDB.size() - 3, page.getUsers().size());
+        assertNull(page.getNextPageToken());
+        result.addAll(page.getUsers());
+
+        assertEquals(toResponses(usersInDB), result);
+        verify(userRepository, times(2)).findResponsesByIdGreaterThanOrderByIdAsc(anyLong(), any(Limit.class));
+        verify(userRepository, never()).findAll();
+    }
+
+    @Test
+    void testGetPage_DefaultSize() {
+        var page = userService.getPage(null, null);
+        assertEquals(toResponses(usersInDB), page.getUsers());
+        assertNull(page.getNextPageToken());
+    }
+
+    @Test
+    void testGetPage_InvalidArguments() {
+        assertThrows(ResponseStatusException.class, () -> userService.getPage("not-a-token", 3));
+        assertThrows(ResponseStatusException.class, () -> userService.getPage(null, 0));
     }
 
     @Test
     void testGetById() {
         for (var user : usersInDB) {
             var result = userService.getById(user.getId());
-            assertUserEquals(user, result);
+            assertEquals(UserResponseDTO.of(user), result);
             verify(userRepository, times(1)).findById(user.getId());
         }
         verify(userRepository, times(usersInDB.size())).findById(anyLong());
@@ -79,7 +113,7 @@ class UserServiceTest extends BaseIntegrationTest {
     void testGetByUsername() {
         for (var user : usersInDB) {
             var result = userService.getByUsername(user.getUsername());
-            assertUserEquals(user, result);
+            assertEquals(UserResponseDTO.of(user), result);
             verify(userRepository, times(1)).findByUsername(user.getUsername());
         }
         verify(userRepository, times(usersInDB.size())).findByUsername(anyString());
@@ -93,6 +127,187 @@ class UserServiceTest extends BaseIntegrationTest {
         verify(userRepository, times(1)).findByUsername(username);
     }
 
+    @Test
+    void testGetAllByIds() {
+
+        var ids = new ArrayList<Long>();
+        usersInDB.forEach(user -> ids.add(user.getId()));
+        ids.add(0L);
+
+        var result = userService.getAllByIds(ids);
+
+        assertEquals(ids, new ArrayList<>(result.keySet()));
+        for (var user : usersInDB) {
+            assertEquals(UserResponseDTO.of(user), result.get(user.getId()));
+        }
+        assertNull(result.get(0L));
+
+        verify(userRepository, times(1)).findResponsesByIdIn(anyCollection());
+        verify(userRepository, never()).findById(anyLong());
+    }
+
+    @Test
+    void testGetAllByUsernames() {
+
+        var usernames = new ArrayList<String>();
+        usersInDB.forEach(user -> usernames.add(user.getUsername()));
+        usernames.add("-");
+
+        var result = userService.getAllByUsernames(usernames);
+
+        assertEquals(usernames, new ArrayList<>(result.keySet()));
+        for (var user : usersInDB) {
+            assertEquals(UserResponseDTO.of(user), result.get(user.getUsername()));
+        }
+        assertNull(result.get("-"));
+
+        verify(userRepository, times(1)).findResponsesByUsernameIn(anyCollection());
+        verify(userRepository, never()).findByUsername(anyString());
+    }
+
+    @Test
+    void testSearch_UsernamePrefix() {
+
+        var page = userService.search("USERNAME", null, null, null, null, null);
+        assertEquals(toResponses(usersInDB), page.getUsers());
+        assertNull(page.getNextPageToken());
+
+        page = userService.search("username1", null, null, null, null, null);
+        assertEquals(toResponses(usersInDB.subList(0, 1)), page.getUsers());
+
+        // LIKE wildcards in the prefix are matched literally
+        assertTrue(userService.search("user_ame", null, null, null, null, null).getUsers().isEmpty());
+        assertTrue(userService.search("%", null, null, null, null, null).getUsers().isEmpty());
+
+        verify(userRepository, times(4)).findResponses(any(), any(Limit.class));
+        verify(userRepository, never()).findAll();
+    }
+
+    @Test
+    void testSearch_PhoneNumber() {
+        var page = userService.search(null, "1 (111) 111-1", null, null, null, null);
+        assertEquals(toResponses(usersInDB.subList(0, 1)), page.getUsers());
+    }
+
+    @Test
+    void testSearch_BirthDateRange() {
+
+        var page = userService.search(null, null, LocalDate.now().minusYears(1), LocalDate.now(), null, null);
+        assertEquals(toResponses(usersInDB.subList(2, 4)), page.getUsers());
+
+        // Filters are combined
+        page = userService.search("username", null, LocalDate.now().minusYears(1), null, null, null);
+        assertEquals(toResponses(usersInDB.subList(2, 4)), page.getUsers());
+        page = userService.search("username3", null, null, LocalDate.now().minusYears(1), null, null);
+        assertTrue(page.getUsers().isEmpty());
+    }
+
+    @Test
+    void testSearch_Paging() {
+
+        var page = userService.search("username", null, null, null, null, 3);
+        assertEquals(toResponses(usersInDB.subList(0, 3)), page.getUsers());
+        assertNotNull(page.getNextPageToken());
+
+        page = userService.search("username", null, null, null, page.getNextPageToken(), 3);
+        assertEquals(toResponses(usersInDB.subList(3, 4)), page.getUsers());
+        assertNull(page.getNextPageToken());
+    }
+
+    @Test
+    void testSearch_InvalidArguments() {
+
+        assertEquals(HttpStatus.BAD_REQUEST, assertThrows(ResponseStatusException.class,
+                () -> userService.search(null, null, null, null, null, null)).getStatusCode());
+        assertEquals(HttpStatus.BAD_REQUEST, assertThrows(ResponseStatusException.class,
+                () -> userService.search(" ", "+", null, null, null, null)).getStatusCode());
+        assertEquals(HttpStatus.BAD_REQUEST, assertThrows(ResponseStatusException.class,
+                () -> userService.search(null, null, LocalDate.now(), LocalDate.now().minusDays(1), null, null)).getStatusCode());
+
+        verify(userRepository, never()).findResponses(any(), any(Limit.class));
+    }
+
+    @Test
+    void testIsUsernameAvailable() {
+
+        usernameAvailabilityService.rebuild();
+        Mockito.clearInvocations(userRepository);
+
+        assertTrue(userService.isUsernameAvailable("free_username"));
+        verify(userRepository, never()).existsByUsername(anyString());
+
+        assertFalse(userService.isUsernameAvailable("USERNAME1"));
+        verify(userRepository, times(1)).existsByUsername("USERNAME1");
+
+        userService.create(new UserRequestDTO("new_username", "new_password", LocalDate.now(), "+99999999"));
+        assertFalse(userService.isUsernameAvailable("new_username"));
+        verify(userRepository, times(1)).existsByUsername("new_username");
+
+        assertEquals(HttpStatus.BAD_REQUEST, assertThrows(ResponseStatusException.class,
+                () -> userService.isUsernameAvailable(" ")).getStatusCode());
+    }
+
+    @Test
+    void testIsUsernameAvailable_Deleted() {
+
+        var username = usersInDB.get(0).getUsername();
+        usernameAvailabilityService.rebuild();
+        userService.deleteById(usersInDB.get(0).getId(), null);
+        Mockito.clearInvocations(userRepository);
+
+        // The filter still holds the deleted username, the database answers until the rebuild
+        assertTrue(userService.isUsernameAvailable(username));
+        verify(userRepository, times(1)).existsByUsername(username);
+
+        usernameAvailabilityService.rebuild();
+        Mockito.clearInvocations(userRepository);
+
+        assertTrue(userService.isUsernameAvailable(username));
+        verify(userRepository, never()).existsByUsername(anyString());
+    }
+
+    @Test
+    void testIsUsernameAvailable_FilterTooOld() {
+
+        // Usernames taken through other instances are missing from a filter older than the max age
+        var availabilityService = new UsernameAvailabilityService(userRepository, 1000, 0.000001, 100, 0);
+        availabilityService.rebuild();
+        Mockito.clearInvocations(userRepository);
+
+        assertTrue(availabilityService.isAvailable("free_username"));
+        verify(userRepository, times(1)).existsByUsername("free_username");
+        assertEquals(0, availabilityService.getAnsweredByFilterCount());
+    }
+
+    @Test
+    void testIsUsernameAvailable_Collation() {
+
+        // "stra\u00DFe" and "STRASSE" are the same username under utf8mb4_0900_ai_ci
+        userService.create(new UserRequestDTO("stra\u00DFe", "new_password", LocalDate.now(), "+99999998"));
+        usernameAvailabilityService.rebuild();
+        Mockito.clearInvocations(userRepository);
+
+        assertFalse(userService.isUsernameAvailable("STRASSE"));
+        verify(userRepository, times(1)).existsByUsername("STRASSE");
+
+        // Keys that are not plain ASCII after folding always go to the database
+        var cyrillic = "\u043f\u043e\u043b\u044c\u0437\u043e\u0432\u0430\u0442\u0435\u043b\u044c";
+        assertTrue(userService.isUsernameAvailable(cyrillic));
+        verify(userRepository, times(1)).existsByUsername(cyrillic);
+    }
+
+    @Test
+    void testGetAllByIds_TooManyKeys() {
+
+        var ids = new ArrayList<Long>();
+        for (long id = 1; id <= 101; id++) {
+            ids.add(id);
+        }
+
+        assertThrows(ResponseStatusException.class, () -> userService.getAllByIds(ids));
+        verify(userRepository, never()).findResponsesByIdIn(anyCollection());
+    }
+
     @Test
     void testCreate() {
 
@@ -103,20 +318,80 @@ class UserServiceTest extends BaseIntegrationTest {
         assertNotNull(userCreated.getId());
         assertUserEquals(newUser.toUser(), userCreated);
 
-        verify(userRepository, times(1)).save(any(User.class));
+        verify(userRepository, times(1)).saveAndFlush(any(User.class));
+        verify(userRepository, never()).findByUsername(anyString());
     }
 
     @Test
     void testCreate_AlreadyExistsByUsername() {
 
-        var newUser = new UserRequestDTO(null, "new_password", LocalDate.now(), "+99999999");
+        // The failed INSERT spoils the test transaction, so only one conflict is checked here
+        var newUser = new UserRequestDTO(usersInDB.get(0).getUsername(), "new_password", LocalDate.now(), "+99999999");
 
-        for (var user : usersInDB) {
-            newUser.setUsername(user.getUsername());
-            assertThrows(RuntimeException.class, () -> userService.create(newUser));
+        var exception = assertThrows(ResponseStatusException.class, () -> userService.create(newUser));
+        assertEquals(HttpStatus.CONFLICT, exception.getStatusCode());
+
+        verify(userRepository, times(1)).saveAndFlush(any(User.class));
+        verify(userRepository, never()).findByUsername(anyString());
+    }
+
+    @Test
+    void testCreate_Invalid() {
+
+        var withoutPassword = new UserRequestDTO("new_username", null, LocalDate.now(), "+99999999");
+        var exception = assertThrows(ResponseStatusException.class, () -> userService.create(withoutPassword));
+        assertEquals(HttpStatus.BAD_REQUEST, exception.getStatusCode());
+
+        var tooLongUsername = new UserRequestDTO("u".repeat(256), "new_password", LocalDate.now(), "+99999999");
+        exception = assertThrows(ResponseStatusException.class, () -> userService.create(tooLongUsername));
+        assertEquals(HttpStatus.BAD_REQUEST, exception.getStatusCode());
+
+        verify(userRepository, never()).saveAndFlush(any(User.class));
+    }
+
+    @Test
+    void testCreateAll() {
+
+        var newUsers = List.of(
+                new UserRequestDTO("batch_username1", "password", LocalDate.now(), "+99999991"),
+                new UserRequestDTO(usersInDB.get(0).getUsername(), "password", LocalDate.now(), "+99999992"),
+                new UserRequestDTO("batch_username2", "password", LocalDate.now(), "+99999993"),
+                new UserRequestDTO("batch_username1", "password", LocalDate.now(), "+99999994"),
+                new UserRequestDTO(null, "password", LocalDate.now(), "+99999995")
+        );
+
+        var results = userService.createAll(newUsers);
+
+        assertEquals(newUsers.size(), results.size());
+        assertEquals(
+                List.of(UserBatchResultDTO.Status.CREATED,
+                        UserBatchResultDTO.Status.CONFLICT,
+                        UserBatchResultDTO.Status.CREATED,
+                        UserBatchResultDTO.Status.CONFLICT,
+                        UserBatchResultDTO.Status.INVALID),
+                results.stream().map(UserBatchResultDTO::getStatus).toList());
+
+        for (var result : results) {
+            assertEquals(result.getStatus() == UserBatchResultDTO.Status.CREATED, result.getId() != null);
         }
 
-        verify(userRepository, never()).save(any(User.class));
+        assertNotNull(userService.getByUsername("batch_username1"));
+        assertNotNull(userService.getByUsername("batch_username2"));
+
+        verify(userRepository, times(1)).findExistingUsernames(anyCollection());
+        verify(userRepository, times(1)).saveAll(anyList());
+    }
+
+    @Test
+    void testCreateAll_TooLarge() {
+
+        var newUsers = new ArrayList<UserRequestDTO>();
+        for (int i = 0; i <= 5_000; i++) {
+            newUsers.add(new UserRequestDTO("batch_username" + i, "password", null, null));
+        }
+
+        assertThrows(ResponseStatusException.class, () -> userService.createAll(newUsers));
+        verify(userRepository, never()).saveAll(anyList());
     }
 
     @Test
@@ -130,25 +405,140 @@ class UserServiceTest extends BaseIntegrationTest {
                     user.getBirthDate().minusMonths(2),
                     user.getPhoneNumber()+"1");
 
-            var result = userService.update(user.getId(), userToUpdate);
+            var userUpdated = userService.update(user.getId(), null, userToUpdate);
 
-            assertUserEquals(userToUpdate.toUser(), result);
-            verify(userRepository, times(1)).existsById(user.getId());
+            assertEquals(userService.getById(user.getId()), userUpdated);
+            assertUserEquals(userToUpdate.toUser(), userUpdated);
+            assertEquals(userToUpdate.getPassword(), userRepository.findById(user.getId()).orElseThrow().getPassword());
         }
 
-        verify(userRepository, times(usersInDB.size())).save(any(User.class));
+        verify(userRepository, times(usersInDB.size())).findForUpdateById(anyLong());
+        verify(userRepository, never()).save(any(User.class));
+    }
+
+    @Test
+    void testUpdate_BlankPasswordKept() {
+
+        var user = usersInDB.get(0);
+        var userToUpdate = new UserRequestDTO(user.getUsername(), "", user.getBirthDate(), "+99999999");
+
+        userService.update(user.getId(), null, userToUpdate);
+
+        var userUpdated = userRepository.findById(user.getId()).orElseThrow();
+        assertEquals(user.getPassword(), userUpdated.getPassword());
+        assertEquals("+99999999", userUpdated.getPhoneNumber());
     }
 
     @Test
     void testUpdate_NotFound() {
 
         var id = 0L;
+        var userToUpdate = new UserRequestDTO("username0", "password0", null, null);
+
+        var exception = assertThrows(ResponseStatusException.class, () -> userService.update(id, null, userToUpdate));
+        assertEquals(HttpStatus.NOT_FOUND, exception.getStatusCode());
+
+        verify(userRepository, times(1)).findForUpdateById(id);
+        verify(userRepository, never()).findById(anyLong());
+    }
+
+    @Test
+    void testUpdate_UsernameRequired() {
+
         var userToUpdate = new UserRequestDTO();
 
-        assertThrows(RuntimeException.class, () -> userService.update(id, userToUpdate));
+        var exception = assertThrows(ResponseStatusException.class,
+                () -> userService.update(usersInDB.get(0).getId(), null, userToUpdate));
+        assertEquals(HttpStatus.BAD_REQUEST, exception.getStatusCode());
 
-        verify(userRepository, times(1)).existsById(id);
-        verify(userRepository, never()).save(any(User.class));
+        verify(userRepository, never()).findForUpdateById(anyLong());
+    }
+
+    @Test
+    void testUpdate_Conflict() {
+
+        var user = usersInDB.get(0);
+        var userToUpdate = new UserRequestDTO(usersInDB.get(1).getUsername(), null, null, null);
+
+        var exception = assertThrows(ResponseStatusException.class, () -> userService.update(user.getId(), null, userToUpdate));
+        assertEquals(HttpStatus.CONFLICT, exception.getStatusCode());
+
+        verify(userRepository, never()).findByUsername(anyString());
+    }
+
+    @Test
+    void testUpdate_ExpectedVersion() {
+
+        var user = usersInDB.get(0);
+        var version = userService.getVersionById(user.getId()).version();
+        var userToUpdate = new UserRequestDTO(user.getUsername(), null, user.getBirthDate(), "+99999999");
+
+        var userUpdated = userService.update(user.getId(), version, userToUpdate);
+        assertEquals(version + 1, userService.getVersionById(user.getId()).version());
+        assertEquals(userService.getById(user.getId()), userUpdated);
+
+        // The same version is stale now
+        var exception = assertThrows(ResponseStatusException.class,
+                () -> userService.update(user.getId(), version, userToUpdate));
+        assertEquals(HttpStatus.PRECONDITION_FAILED, exception.getStatusCode());
+    }
+
+    @Test
+    void testPatch() {
+
+        var user = usersInDB.get(0);
+        var userToPatch = new UserRequestDTO(null, null, null, "+99999999");
+
+        userService.patch(user.getId(), null, userToPatch);
+
+        var userPatched = userRepository.findById(user.getId()).orElseThrow();
+        assertEquals(user.getUsername(), userPatched.getUsername());
+        assertEquals(user.getPassword(), userPatched.getPassword());
+        assertEquals(user.getBirthDate(), userPatched.getBirthDate());
+        assertEquals("+99999999", userPatched.getPhoneNumber());
+
+        verify(userRepository, times(1)).findForUpdateById(user.getId());
+    }
+
+    @Test
+    void testPatch_NotFound() {
+
+        var exception = assertThrows(ResponseStatusException.class,
+                () -> userService.patch(0L, null, new UserRequestDTO(null, null, null, "+99999999")));
+        assertEquals(HttpStatus.NOT_FOUND, exception.getStatusCode());
+    }
+
+    @Test
+    void testGetVersionByUsername() {
+
+        var user = usersInDB.get(0);
+
+        var version = userService.getVersionByUsername(user.getUsername());
+
+        assertEquals(user.getId(), version.id());
+        assertEquals(user.getVersion(), version.version());
+        assertNull(userService.getVersionByUsername("-"));
+    }
+
+    @Test
+    void testDeleteById_ExpectedVersion() {
+
+        var user = usersInDB.get(0);
+        var version = userService.getVersionById(user.getId()).version();
+
+        var exception = assertThrows(ResponseStatusException.class,
+                () -> userService.deleteById(user.getId(), version + 1));
+        assertEquals(HttpStatus.PRECONDITION_FAILED, exception.getStatusCode());
+        assertNotNull(userService.getById(user.getId()));
+
+        userService.deleteById(user.getId(), version);
+        assertNull(userService.getById(user.getId()));
+        verify(userRepository, never()).deleteById(anyLong());
+
+        // Deleting it again with the same version finds no current representation to match
+        exception = assertThrows(ResponseStatusException.class,
+                () -> userService.deleteById(user.getId(), version));
+        assertEquals(HttpStatus.PRECONDITION_FAILED, exception.getStatusCode());
     }
 
     @Test
@@ -157,11 +547,12 @@ class UserServiceTest extends BaseIntegrationTest {
         assertFalse(userRepository.findAll().isEmpty());
 
         for (var user : usersInDB) {
-            userService.deleteById(user.getId());
-            verify(userRepository, times(1)).deleteById(user.getId());
+            userService.deleteById(user.getId(), null);
+            verify(userRepository, times(1)).findForUpdateById(user.getId());
         }
 
-        verify(userRepository, times(usersInDB.size())).deleteById(anyLong());
+        verify(userRepository, times(usersInDB.size())).delete(any(User.class));
+        verify(userRepository, never()).deleteById(anyLong());
         assertTrue(userRepository.findAll().isEmpty());
     }
 
@@ -198,6 +589,17 @@ class UserServiceTest extends BaseIntegrationTest {
         assertNull(result);
     }
 
+    private List<UserResponseDTO> toResponses(List<User> users) {
+        return users.stream().map(UserResponseDTO::of).toList();
+    }
+
+    private void assertUserEquals(User userExpected, UserResponseDTO userActual) {
+        assertNotNull(userActual);
+        assertEquals(userExpected.getUsername(), userActual.username());
+        assertEquals(userExpected.getBirthDate(), userActual.birthDate());
+        assertEquals(userExpected.getPhoneNumber(), userActual.phoneNumber());
+    }
+
     private void assertUserEquals(User userExpected, User userActual) {
         assertEquals(userExpected, userActual);
         assertEquals(userExpected.getPassword(), userActual.getPassword());
@@ -0,0 +1,91 @@
+package org.example.userservice.service.security;
+
+import org.example.userservice.BaseIntegrationTest;
+import org.example.userservice.model.security.Role;
+import org.example.userservice.model.security.UserDetailsImpl;
+import org.example.userservice.repository.security.UserDetailsRepository;
+import org.example.userservice.service.security.jwt.TokenVersionRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.transaction.annotation.Transactional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@SpringBootTest
+@Transactional
+class CachingUserDetailsServiceTest extends BaseIntegrationTest {
+
+    @Autowired
+    private CachingUserDetailsService cachingUserDetailsService;
+
+    @Autowired
+    private TokenVersionRegistry tokenVersionRegistry;
+
+    @SpyBean
+    private UserDetailsRepository userDetailsRepository;
+
+    @BeforeEach
+    void setUp() {
+        cachingUserDetailsService.getCache().invalidateAll();
+        Mockito.clearInvocations(userDetailsRepository);
+    }
+
+    @Test
+    void testLoadUserByUsername_Cached() {
+
+        var user = cachingUserDetailsService.save(new UserDetailsImpl(null, "cached", "cached", Role.USER, true));
+
+        var hitCountBefore = cachingUserDetailsService.getStats().hitCount();
+
+        assertEquals(user, cachingUserDetailsService.loadUserByUsername(user.getUsername()));
+        assertEquals(user, cachingUserDetailsService.loadUserByUsername(user.getUsername()));
+
+        verify(userDetailsRepository, times(1)).findCurrentByUsername(user.getUsername());
+        assertEquals(hitCountBefore + 1, cachingUserDetailsService.getStats().hitCount());
+    }
+
+    @Test
+    void testLoadUserByUsername_NotFoundCached() {
+
+        var username = "-";
+
+        assertThrows(UsernameNotFoundException.class, () -> cachingUserDetailsService.loadUserByUsername(username));
+        assertThrows(UsernameNotFoundException.class, () -> cachingUserDetailsService.loadUserByUsername(username));
+
+        verify(userDetailsRepository, times(1)).findCurrentByUsername(username);
+    }
+
+    @Test
+    void testSave_Invalidates() {
+
+        var username = "created-later";
+
+        assertThrows(UsernameNotFoundException.class, () -> cachingUserDetailsService.loadUserByUsername(username));
+
+        cachingUserDetailsService.save(new UserDetailsImpl(null, username, "password", Role.USER, true));
+
+        assertEquals(username, cachingUserDetailsService.loadUserByUsername(username).getUsername());
+        verify(userDetailsRepository, times(2)).findCurrentByUsername(username);
+    }
+
+    @Test
+    void testDeactivate_Invalidates() {
+
+        var user = cachingUserDetailsService.save(new UserDetailsImpl(null, "deactivated", "password", Role.USER, true));
+        var version = tokenVersionRegistry.getVersion(user.getUsername());
+
+        assertTrue(cachingUserDetailsService.loadUserByUsername(user.getUsername()).isEnabled());
+
+        cachingUserDetailsService.deactivate(user.getUsername());
+
+        assertFalse(cachingUserDetailsService.loadUserByUsername(user.getUsername()).isEnabled());
+        assertEquals(version + 1, tokenVersionRegistry.getVersion(user.getUsername()));
+    }
+}
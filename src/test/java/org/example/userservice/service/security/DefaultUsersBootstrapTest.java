@@ -0,0 +1,73 @@
+package org.example.userservice.service.security;
+
+import org.example.userservice.BaseIntegrationTest;
+import org.example.userservice.model.security.UserDetailsImpl;
+import org.example.userservice.repository.security.UserDetailsRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.transaction.annotation.Transactional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@SpringBootTest
+@Transactional
+class DefaultUsersBootstrapTest extends BaseIntegrationTest {
+
+    @Autowired
+    private DefaultUsersBootstrap defaultUsersBootstrap;
+
+    @Autowired
+    private CachingUserDetailsService cachingUserDetailsService;
+
+    @SpyBean
+    private UserDetailsRepository userDetailsRepository;
+
+    @Value("${security.default-users.admin.username}")
+    private String defaultUserAdminUsername;
+
+    // The changes are rolled back, the cache is not
+    @AfterEach
+    void tearDown() {
+        cachingUserDetailsService.evict(defaultUserAdminUsername);
+    }
+
+    @Test
+    void testCheckOrCreateDefaultUsers_Exists() {
+
+        clearInvocations(userDetailsRepository);
+
+        defaultUsersBootstrap.checkOrCreateDefaultUsers();
+
+        var userCreatedOpt = userDetailsRepository.findByUsername(defaultUserAdminUsername);
+        assertTrue(userCreatedOpt.isPresent());
+        assertFalse(userCreatedOpt.get().getPassword().isBlank());
+
+        verify(userDetailsRepository, never()).save(any(UserDetailsImpl.class));
+    }
+
+    @Test
+    void testCheckOrCreateDefaultUsers_NotExists() {
+
+        userDetailsRepository.deleteAll();
+        clearInvocations(userDetailsRepository);
+
+        // The admin is cached as unknown before it is created
+        assertThrows(UsernameNotFoundException.class, () -> cachingUserDetailsService.loadUserByUsername(defaultUserAdminUsername));
+
+        defaultUsersBootstrap.checkOrCreateDefaultUsers();
+
+        var userCreatedOpt = userDetailsRepository.findByUsername(defaultUserAdminUsername);
+        assertTrue(userCreatedOpt.isPresent());
+        assertFalse(userCreatedOpt.get().getPassword().isBlank());
+        assertEquals(defaultUserAdminUsername, cachingUserDetailsService.loadUserByUsername(defaultUserAdminUsername).getUsername());
+
+        verify(userDetailsRepository, times(1)).save(any(UserDetailsImpl.class));
+    }
+}
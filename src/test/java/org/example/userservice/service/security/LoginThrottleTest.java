@@ -0,0 +1,112 @@
+package org.example.userservice.service.security;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LoginThrottleTest {
+
+    private LoginThrottle loginThrottle;
+
+    @BeforeEach
+    void setUp() {
+        loginThrottle = new LoginThrottle();
+        ReflectionTestUtils.setField(loginThrottle, "usernameCapacity", 3);
+        ReflectionTestUtils.setField(loginThrottle, "usernameRefillPerMinute", 1);
+        ReflectionTestUtils.setField(loginThrottle, "ipCapacity", 5);
+        ReflectionTestUtils.setField(loginThrottle, "ipRefillPerMinute", 1);
+        ReflectionTestUtils.setField(loginThrottle, "lockoutThreshold", 2);
+        ReflectionTestUtils.setField(loginThrottle, "lockoutBaseInSeconds", 60L);
+        ReflectionTestUtils.setField(loginThrottle, "lockoutMaxInSeconds", 600L);
+        ReflectionTestUtils.setField(loginThrottle, "failureWindowInSeconds", 600L);
+        ReflectionTestUtils.setField(loginThrottle, "maximumSize", 100L);
+        ReflectionTestUtils.setField(loginThrottle, "idleInMinutes", 10L);
+        ReflectionTestUtils.invokeMethod(loginThrottle, "init");
+    }
+
+    @Test
+    void testTryAcquire_ByUsername() {
+
+        for (int i = 0; i < 3; i++) {
+            assertTrue(loginThrottle.tryAcquire("user", "10.0.0.1").isZero());
+        }
+        assertFalse(loginThrottle.tryAcquire("USER", "10.0.0.2").isZero());
+        assertTrue(loginThrottle.tryAcquire("another", "10.0.0.1").isZero());
+
+        assertEquals(4, loginThrottle.getAllowedCount());
+        assertEquals(1, loginThrottle.getRejectedByUsernameCount());
+    }
+
+    @Test
+    void testTryAcquire_ByIp() {
+
+        for (int i = 0; i < 5; i++) {
+            assertTrue(loginThrottle.tryAcquire("user" + i, "10.0.0.1").isZero());
+        }
+        assertFalse(loginThrottle.tryAcquire("user", "10.0.0.1").isZero());
+        assertTrue(loginThrottle.tryAcquire("user", "10.0.0.2").isZero());
+
+        assertEquals(1, loginThrottle.getRejectedByIpCount());
+    }
+
+    @Test
+    void testTryAcquire_RejectedByUsernameKeepsIpToken() {
+
+        for (int i = 0; i < 3; i++) {
+            assertTrue(loginThrottle.tryAcquire("user", "10.0.0.1").isZero());
+        }
+        for (int i = 0; i < 3; i++) {
+            assertFalse(loginThrottle.tryAcquire("user", "10.0.0.1").isZero());
+        }
+        assertTrue(loginThrottle.tryAcquire("another1", "10.0.0.1").isZero());
+        assertTrue(loginThrottle.tryAcquire("another2", "10.0.0.1").isZero());
+
+        assertEquals(3, loginThrottle.getRejectedByUsernameCount());
+        assertEquals(0, loginThrottle.getRejectedByIpCount());
+    }
+
+    @Test
+    void testOnFailure_Lockout() {
+
+        assertTrue(loginThrottle.tryAcquire("user", "10.0.0.1").isZero());
+        loginThrottle.onFailure("user", "10.0.0.1");
+        assertTrue(loginThrottle.tryAcquire("user", "10.0.0.2").isZero());
+        loginThrottle.onFailure("user", "10.0.0.2");
+
+        var retryAfter = loginThrottle.tryAcquire("user", "10.0.0.3");
+        assertTrue(retryAfter.toSeconds() > 0 && retryAfter.toSeconds() <= 60);
+
+        assertEquals(1, loginThrottle.getLockoutCount());
+        assertEquals(1, loginThrottle.getRejectedByLockoutCount());
+    }
+
+    @Test
+    void testOnSuccess_ResetsFailures() {
+
+        assertTrue(loginThrottle.tryAcquire("user", "10.0.0.1").isZero());
+        loginThrottle.onFailure("user", "10.0.0.1");
+        loginThrottle.onSuccess("user");
+
+        assertTrue(loginThrottle.tryAcquire("user", "10.0.0.2").isZero());
+        loginThrottle.onFailure("user", "10.0.0.2");
+
+        assertTrue(loginThrottle.tryAcquire("user", "10.0.0.3").isZero());
+        assertEquals(0, loginThrottle.getLockoutCount());
+    }
+
+    @Test
+    void testOnFailure_OutsideWindow() {
+
+        ReflectionTestUtils.setField(loginThrottle, "failureWindowInSeconds", 0L);
+
+        for (int i = 0; i < 3; i++) {
+            assertTrue(loginThrottle.tryAcquire("user" + i, "10.0.0.1").isZero());
+            loginThrottle.onFailure("user" + i, "10.0.0.1");
+        }
+
+        assertTrue(loginThrottle.tryAcquire("another", "10.0.0.1").isZero());
+        assertEquals(0, loginThrottle.getLockoutCount());
+    }
+}
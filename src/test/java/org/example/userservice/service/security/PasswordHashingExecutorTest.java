@@ -0,0 +1,53 @@
+package org.example.userservice.service.security;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PasswordHashingExecutorTest {
+
+    private final PasswordHashingExecutor passwordHashingExecutor = new PasswordHashingExecutor(1, 1);
+
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        passwordHashingExecutor.destroy();
+    }
+
+    @Test
+    void testSubmit_RejectedWhenQueueIsFull() throws Exception {
+
+        var started = new CountDownLatch(1);
+
+        var running = passwordHashingExecutor.submit(() -> {
+            started.countDown();
+            await(release);
+            return 1;
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        var queued = passwordHashingExecutor.submit(() -> 2);
+        assertEquals(1, passwordHashingExecutor.getQueueSize());
+
+        assertThrows(RejectedExecutionException.class, () -> passwordHashingExecutor.submit(() -> 3));
+
+        release.countDown();
+        assertEquals(1, running.get(5, TimeUnit.SECONDS));
+        assertEquals(2, queued.get(5, TimeUnit.SECONDS));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -8,7 +8,6 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.SpyBean;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
@@ -17,7 +16,6 @@ import org.springframework.transaction.annotation.Transactional;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
-import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.*;
 
@@ -33,9 +31,6 @@ class UserDetailsServiceImplTest extends BaseIntegrationTest {
 
     private List<UserDetailsImpl> usersInDB;
 
-    @Value("${security.default-users.admin.username}")
-    private String defaultUserAdminUsername;
-
     @BeforeEach
     void setUp() {
 
@@ -56,45 +51,15 @@ class UserDetailsServiceImplTest extends BaseIntegrationTest {
         for (var user : usersInDB) {
             var result = userDetailsService.loadUserByUsername(user.getUsername());
             assertEquals(user, result);
-            verify(userDetailsRepository, times(1)).findByUsername(user.getUsername());
+            verify(userDetailsRepository, times(1)).findCurrentByUsername(user.getUsername());
         }
-        verify(userDetailsRepository, times(usersInDB.size())).findByUsername(anyString());
+        verify(userDetailsRepository, times(usersInDB.size())).findCurrentByUsername(anyString());
     }
 
     @Test
     void testLoadUserByUsername_NotFound() {
         var username = "-";
         assertThrows(UsernameNotFoundException.class, () -> userDetailsService.loadUserByUsername(username));
-        verify(userDetailsRepository, times(1)).findByUsername(username);
-    }
-
-    @Test
-    void testCheckOrCreateDefaultUsers_Exists() {
-
-        userDetailsService.checkOrCreateDefaultUsers();
-
-        assertFalse(userDetailsRepository.findAll().isEmpty());
-
-        var userCreatedOpt = userDetailsRepository.findByUsername(defaultUserAdminUsername);
-        assertTrue(userCreatedOpt.isPresent());
-        assertFalse(userCreatedOpt.get().getPassword().isBlank());
-
-        verify(userDetailsRepository, never()).save(any(UserDetailsImpl.class));
-    }
-
-    @Test
-    void testCheckOrCreateDefaultUsers_NotExists() {
-
-        userDetailsRepository.deleteAll();
-
-        userDetailsService.checkOrCreateDefaultUsers();
-
-        assertFalse(userDetailsRepository.findAll().isEmpty());
-
-        var userCreatedOpt = userDetailsRepository.findByUsername(defaultUserAdminUsername);
-        assertTrue(userCreatedOpt.isPresent());
-        assertFalse(userCreatedOpt.get().getPassword().isBlank());
-
-        verify(userDetailsRepository, times(1)).save(any(UserDetailsImpl.class));
+        verify(userDetailsRepository, times(1)).findCurrentByUsername(username);
     }
-}
\ No newline at end of file
+}
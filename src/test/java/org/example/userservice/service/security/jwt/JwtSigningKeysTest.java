@@ -0,0 +1,132 @@
+package org.example.userservice.service.security.jwt;
+
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.Jwts;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.security.KeyPair;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JwtSigningKeysTest {
+
+    private static final String SECRET_KEY = "testSecretKey-testSecretKey-testSecretKey";
+
+    @Test
+    void testSign_EphemeralRsaKey() {
+
+        var jwtSigningKeys = jwtSigningKeys(JwtSigningKeys.Algorithm.RS256, null, List.of(), true);
+
+        var token = sign(jwtSigningKeys, "rsa-user");
+        var jws = Jwts.parser().keyLocator(jwtSigningKeys::locate).build().parseSignedClaims(token);
+
+        assertEquals("rsa-user", jws.getPayload().getSubject());
+        assertEquals("RS256", jws.getHeader().getAlgorithm());
+        assertEquals(jwtSigningKeys.getActiveKid(), jws.getHeader().getKeyId());
+
+        var keys = (Collection<?>) jwtSigningKeys.getJwks().get("keys");
+        assertEquals(1, keys.size());
+        var jwk = (Map<?, ?>) keys.iterator().next();
+        assertEquals(jwtSigningKeys.getActiveKid(), jwk.get("kid"));
+        assertEquals("RSA", jwk.get("kty"));
+        assertNull(jwk.get("d"));
+    }
+
+    @Test
+    void testSign_EdDsa() {
+
+        var jwtSigningKeys = jwtSigningKeys(JwtSigningKeys.Algorithm.EdDSA, null, List.of(), true);
+
+        var token = sign(jwtSigningKeys, "eddsa-user");
+        var jws = Jwts.parser().keyLocator(jwtSigningKeys::locate).build().parseSignedClaims(token);
+
+        assertEquals("eddsa-user", jws.getPayload().getSubject());
+        assertEquals("EdDSA", jws.getHeader().getAlgorithm());
+    }
+
+    @Test
+    void testLocate_AfterRotation() {
+
+        var oldKeyPair = Jwts.SIG.RS256.keyPair().build();
+        var newKeyPair = Jwts.SIG.RS256.keyPair().build();
+
+        var beforeRotation = jwtSigningKeys(JwtSigningKeys.Algorithm.RS256, "old",
+                List.of(key("old", oldKeyPair, true)), true);
+        var oldToken = sign(beforeRotation, "rotated-user");
+
+        // The old key is kept for verification only
+        var afterRotation = jwtSigningKeys(JwtSigningKeys.Algorithm.RS256, "new",
+                List.of(key("old", oldKeyPair, false), key("new", newKeyPair, true)), true);
+        var newToken = sign(afterRotation, "rotated-user");
+
+        var parser = Jwts.parser().keyLocator(afterRotation::locate).build();
+        assertEquals("old", parser.parseSignedClaims(oldToken).getHeader().getKeyId());
+        assertEquals("new", parser.parseSignedClaims(newToken).getHeader().getKeyId());
+        assertEquals(2, ((Collection<?>) afterRotation.getJwks().get("keys")).size());
+
+        // Tokens signed with the new key are unknown to the instances that have not been rotated yet
+        var oldParser = Jwts.parser().keyLocator(beforeRotation::locate).build();
+        assertThrows(JwtException.class, () -> oldParser.parseSignedClaims(newToken));
+    }
+
+    @Test
+    void testLocate_LegacyHmac() {
+
+        var legacyToken = sign(jwtSigningKeys(JwtSigningKeys.Algorithm.HS256, null, List.of(), true), "legacy-user");
+
+        var accepting = jwtSigningKeys(JwtSigningKeys.Algorithm.RS256, null, List.of(), true);
+        assertEquals("legacy-user", Jwts.parser().keyLocator(accepting::locate).build()
+                .parseSignedClaims(legacyToken).getPayload().getSubject());
+
+        var rejecting = jwtSigningKeys(JwtSigningKeys.Algorithm.RS256, null, List.of(), false);
+        assertThrows(JwtException.class, () -> Jwts.parser().keyLocator(rejecting::locate).build()
+                .parseSignedClaims(legacyToken));
+    }
+
+    @Test
+    void testInit_NoActivePrivateKey() {
+        var keyPair = Jwts.SIG.RS256.keyPair().build();
+        assertThrows(IllegalStateException.class, () -> jwtSigningKeys(JwtSigningKeys.Algorithm.RS256, "retired",
+                List.of(key("retired", keyPair, false)), true));
+    }
+
+    private static String sign(JwtSigningKeys jwtSigningKeys, String subject) {
+        return jwtSigningKeys.sign(Jwts.builder().subject(subject)).compact();
+    }
+
+    private static JwtSigningKeys jwtSigningKeys(JwtSigningKeys.Algorithm algorithm, String activeKid,
+                                                 List<JwtSigningProperties.Key> keys, boolean acceptLegacyHmac) {
+
+        var properties = new JwtSigningProperties();
+        properties.setAlgorithm(algorithm);
+        properties.setActiveKid(activeKid);
+        properties.setKeys(keys);
+        properties.setAcceptLegacyHmac(acceptLegacyHmac);
+
+        var jwtSigningKeys = new JwtSigningKeys(properties);
+        ReflectionTestUtils.setField(jwtSigningKeys, "secretKey", SECRET_KEY);
+        ReflectionTestUtils.invokeMethod(jwtSigningKeys, "init");
+        return jwtSigningKeys;
+    }
+
+    private static JwtSigningProperties.Key key(String kid, KeyPair keyPair, boolean withPrivateKey) {
+        var key = new JwtSigningProperties.Key();
+        key.setKid(kid);
+        key.setPublicKey(pem("PUBLIC KEY", keyPair.getPublic().getEncoded()));
+        if (withPrivateKey) {
+            key.setPrivateKey(pem("PRIVATE KEY", keyPair.getPrivate().getEncoded()));
+        }
+        return key;
+    }
+
+    private static String pem(String type, byte[] encoded) {
+        return "-----BEGIN " + type + "-----\n"
+                + Base64.getMimeEncoder().encodeToString(encoded)
+                + "\n-----END " + type + "-----\n";
+    }
+}
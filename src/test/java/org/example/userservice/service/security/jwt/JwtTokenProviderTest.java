@@ -0,0 +1,143 @@
+package org.example.userservice.service.security.jwt;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import org.example.userservice.BaseIntegrationTest;
+import org.example.userservice.model.security.Role;
+import org.example.userservice.model.security.UserDetailsImpl;
+import org.example.userservice.repository.security.UserDetailsRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetailsService;
+
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+@SpringBootTest(properties = "security.jwt.claims-authentication=true")
+class JwtTokenProviderTest extends BaseIntegrationTest {
+
+    @Autowired
+    private JwtTokenProvider jwtTokenProvider;
+
+    @Autowired
+    private TokenVersionRegistry tokenVersionRegistry;
+
+    @Autowired
+    private TokenRevocationService tokenRevocationService;
+
+    @Autowired
+    private UserDetailsRepository userDetailsRepository;
+
+    @SpyBean
+    private UserDetailsService userDetailsService;
+
+    @BeforeEach
+    void setUp() {
+        Mockito.clearInvocations(userDetailsService);
+    }
+
+    @Test
+    void testGetAuthentication_FromClaims() {
+
+        var username = "claims-user";
+        var token = jwtTokenProvider.createToken(username, Role.ADMIN.getAuthorities());
+
+        assertTrue(jwtTokenProvider.validateToken(token));
+
+        var authentication = jwtTokenProvider.getAuthentication(token);
+
+        assertEquals(username, authentication.getName());
+        assertEquals(
+                Role.ADMIN.getAuthorities().stream().map(GrantedAuthority::getAuthority).collect(Collectors.toSet()),
+                authentication.getAuthorities().stream().map(GrantedAuthority::getAuthority).collect(Collectors.toSet()));
+
+        verify(userDetailsService, never()).loadUserByUsername(anyString());
+    }
+
+    @Test
+    void testGetAuthentication_FromClaims_Revoked() {
+
+        var username = "revoked-user";
+        userDetailsRepository.save(new UserDetailsImpl(null, username, "password", Role.USER, true));
+        var token = jwtTokenProvider.createToken(username, Role.USER.getAuthorities());
+
+        tokenVersionRegistry.bump(username);
+
+        assertThrows(RuntimeException.class, () -> jwtTokenProvider.getAuthentication(token));
+
+        var newToken = jwtTokenProvider.createToken(username, Role.USER.getAuthorities());
+        assertEquals(username, jwtTokenProvider.getAuthentication(newToken).getName());
+
+        verify(userDetailsService, never()).loadUserByUsername(anyString());
+    }
+
+    @Test
+    void testIsRevoked_TokenVersion() {
+
+        var username = "token-version-user";
+        userDetailsRepository.save(new UserDetailsImpl(null, username, "password", Role.USER, true));
+
+        var version = tokenVersionRegistry.getVersion(username);
+        tokenVersionRegistry.bump(username);
+
+        assertEquals(version + 1, userDetailsRepository.findByUsername(username).orElseThrow().getTokenVersion());
+
+        assertTrue(tokenRevocationService.isRevoked(claims(username, version)));
+        assertFalse(tokenRevocationService.isRevoked(claims(username, version + 1)));
+        // Issued by an instance that has already seen a later bump
+        assertFalse(tokenRevocationService.isRevoked(claims(username, version + 2)));
+    }
+
+    @Test
+    void testGetAuthentication_TokenRevoked() {
+
+        var username = "revoked-token-user";
+        var token = jwtTokenProvider.createToken(username, Role.USER.getAuthorities());
+        var otherToken = jwtTokenProvider.createToken(username, Role.USER.getAuthorities());
+
+        var claims = jwtTokenProvider.verifyToken(token);
+        assertNotNull(claims.getId());
+        assertNotEquals(claims.getId(), jwtTokenProvider.verifyToken(otherToken).getId());
+
+        tokenRevocationService.revoke(claims);
+
+        var exception = assertThrows(InvalidTokenException.class, () -> jwtTokenProvider.getAuthentication(token));
+        assertEquals(InvalidTokenException.Reason.REVOKED, exception.getReason());
+        assertFalse(jwtTokenProvider.validateToken(token));
+
+        assertEquals(username, jwtTokenProvider.getAuthentication(otherToken).getName());
+    }
+
+    @Test
+    void testVerifyToken_Cached() {
+
+        var token = jwtTokenProvider.createToken("cached-user", Role.USER.getAuthorities());
+
+        var claims = jwtTokenProvider.verifyToken(token);
+        assertSame(claims, jwtTokenProvider.verifyToken(token));
+        assertEquals("cached-user", claims.getSubject());
+    }
+
+    @Test
+    void testVerifyToken_Invalid() {
+        var token = jwtTokenProvider.createToken("invalid-user", Role.USER.getAuthorities());
+        assertThrows(RuntimeException.class, () -> jwtTokenProvider.verifyToken(token + "x"));
+        assertThrows(RuntimeException.class, () -> jwtTokenProvider.verifyToken("not-a-token"));
+    }
+
+    private static Claims claims(String username, int version) {
+        return Jwts.claims()
+                .subject(username)
+                .add(JwtTokenProvider.TOKEN_VERSION_CLAIM, version)
+                .build();
+    }
+}
@@ -0,0 +1,42 @@
+package org.example.userservice.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BloomFilterTest {
+
+    @Test
+    void testMightContain() {
+
+        var bloomFilter = new BloomFilter(10_000, 0.01);
+        var values = IntStream.range(0, 10_000).mapToObj(i -> UUID.randomUUID().toString()).toList();
+
+        values.forEach(bloomFilter::put);
+
+        assertTrue(values.stream().allMatch(bloomFilter::mightContain));
+
+        var falsePositives = IntStream.range(0, 10_000)
+                .mapToObj(i -> UUID.randomUUID().toString())
+                .filter(bloomFilter::mightContain)
+                .count();
+        assertTrue(falsePositives < 300, "Too many false positives - " + falsePositives);
+    }
+
+    @Test
+    void testEmpty() {
+        var bloomFilter = new BloomFilter(100, 0.001);
+        assertFalse(bloomFilter.mightContain("value"));
+        assertFalse(bloomFilter.mightContain(""));
+        assertTrue(bloomFilter.getHashCount() > 1);
+    }
+
+    @Test
+    void testInvalidArguments() {
+        assertThrows(IllegalArgumentException.class, () -> new BloomFilter(0, 0.01));
+        assertThrows(IllegalArgumentException.class, () -> new BloomFilter(100, 1));
+    }
+}
@@ -0,0 +1,66 @@
+package org.example.userservice.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExpiryWheelTest {
+
+    private static final Duration TICK = Duration.ofSeconds(1);
+
+    @Test
+    void testAdvance() {
+
+        var wheel = new ExpiryWheel<String>(10, TICK, 0);
+
+        wheel.schedule("first", 1_500);
+        wheel.schedule("second", 3_000);
+        assertEquals(2, wheel.size());
+
+        assertEquals(List.of(), wheel.advance(1_000));
+        assertEquals(List.of("first"), wheel.advance(2_000));
+        assertEquals(List.of(), wheel.advance(2_999));
+        assertEquals(List.of("second"), wheel.advance(3_000));
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void testAdvance_BeyondOneRevolution() {
+
+        var wheel = new ExpiryWheel<String>(10, TICK, 0);
+
+        wheel.schedule("late", 25_000);
+        wheel.schedule("early", 5_000);
+
+        // Both share a slot, only the earlier deadline is due on the first revolution
+        assertEquals(List.of("early"), wheel.advance(15_000));
+        assertEquals(List.of(), wheel.advance(24_000));
+        assertEquals(List.of("late"), wheel.advance(25_000));
+    }
+
+    @Test
+    void testAdvance_LongPause() {
+
+        var wheel = new ExpiryWheel<String>(10, TICK, 0);
+
+        wheel.schedule("first", 3_000);
+        wheel.schedule("second", 7_000);
+        wheel.schedule("third", 120_000);
+
+        assertEquals(2, wheel.advance(100_000).size());
+        assertEquals(1, wheel.size());
+    }
+
+    @Test
+    void testSchedule_PastDeadline() {
+
+        var wheel = new ExpiryWheel<String>(10, TICK, 5_000);
+
+        wheel.schedule("expired", 1_000);
+
+        assertEquals(List.of("expired"), wheel.advance(6_000));
+    }
+}
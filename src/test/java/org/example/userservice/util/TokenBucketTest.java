@@ -0,0 +1,56 @@
+package org.example.userservice.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenBucketTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    @Test
+    void testTryAcquire() {
+
+        var bucket = new TokenBucket(10, 60, 0);
+
+        assertEquals(0, bucket.tryAcquire(6, 0));
+        assertEquals(0, bucket.tryAcquire(4, 0));
+
+        // One token per second
+        assertEquals(3 * SECOND, bucket.tryAcquire(3, 0));
+        assertEquals(0, bucket.tryAcquire(3, 3 * SECOND));
+    }
+
+    @Test
+    void testTryAcquire_RefillIsCapped() {
+
+        var bucket = new TokenBucket(10, 60, 0);
+
+        assertEquals(0, bucket.tryAcquire(10, 0));
+        assertEquals(0, bucket.tryAcquire(10, 60 * SECOND));
+        assertTrue(bucket.tryAcquire(1, 60 * SECOND) > 0);
+    }
+
+    @Test
+    void testWaitFor_KeepsTokens() {
+
+        var bucket = new TokenBucket(10, 60, 0);
+
+        assertEquals(0, bucket.tryAcquire(8, 0));
+        assertEquals(0, bucket.waitFor(2, 0));
+        assertEquals(SECOND, bucket.waitFor(3, 0));
+        assertEquals(0, bucket.tryAcquire(2, 0));
+    }
+
+    @Test
+    void testTryAcquire_InvalidPermits() {
+
+        var bucket = new TokenBucket(10, 60, 0);
+
+        assertThrows(IllegalArgumentException.class, () -> bucket.tryAcquire(0, 0));
+        assertThrows(IllegalArgumentException.class, () -> bucket.tryAcquire(11, 0));
+        assertThrows(IllegalArgumentException.class, () -> bucket.waitFor(11, 0));
+    }
+}